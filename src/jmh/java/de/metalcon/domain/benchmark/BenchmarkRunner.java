@@ -0,0 +1,37 @@
+package de.metalcon.domain.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * main class of muid-benchmarks.jar<br>
+ * <br>
+ * Accepts the usual JMH command line options. Unless given otherwise the gc
+ * profiler reports the allocation rate of every benchmark and the results are
+ * written to target/jmh-result.json, so runs of different releases can be
+ * compared.
+ */
+public class BenchmarkRunner {
+
+    public static final String DEFAULT_RESULT = "target/jmh-result.json";
+
+    public static void main(final String[] args) throws Exception {
+        final CommandLineOptions commandLine = new CommandLineOptions(args);
+        final ChainedOptionsBuilder options =
+                new OptionsBuilder().parent(commandLine);
+        if (commandLine.getProfilers().isEmpty()) {
+            options.addProfiler(GCProfiler.class);
+        }
+        if (!commandLine.getResultFormat().hasValue()) {
+            options.resultFormat(ResultFormatType.JSON);
+        }
+        if (!commandLine.getResult().hasValue()) {
+            options.result(DEFAULT_RESULT);
+        }
+        new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,92 @@
+package de.metalcon.domain.benchmark;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.metalcon.domain.helper.DomainParser;
+
+/**
+ * domain extraction of UrlStore: java.net.URL and String.split as before
+ * against DomainParser
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DomainParserBenchmark {
+
+    private final String[] urls = new String[UidConverterBenchmark.SIZE];
+
+    private final String[] hosts = new String[UidConverterBenchmark.SIZE];
+
+    private int next;
+
+    @Setup
+    public void setUp() throws MalformedURLException {
+        for (int i = 0; i < urls.length; i++) {
+            switch (i % 4) {
+                case 0:
+                    urls[i] = "http://www.band" + i + ".de/discography/" + i;
+                    break;
+                case 1:
+                    urls[i] = "https://band" + i + ".co.uk/";
+                    break;
+                case 2:
+                    urls[i] = "http://user@shop.band" + i + ".com:8080/a?b=c";
+                    break;
+                default:
+                    urls[i] = "http://10.0." + (i >> 8) + "." + (i & 255)
+                            + "/index.html";
+                    break;
+            }
+            hosts[i] = DomainParser.getHost(urls[i]);
+        }
+    }
+
+    private int nextIndex() {
+        return next++ & (UidConverterBenchmark.SIZE - 1);
+    }
+
+    /**
+     * the domain UrlStore derived before DomainParser existed
+     */
+    @Benchmark
+    public String urlAndSplit() throws MalformedURLException {
+        final String[] labels =
+                new URL(urls[nextIndex()]).getHost().split("\\.");
+        if (labels.length < 2) {
+            return labels[0];
+        }
+        return labels[labels.length - 2] + "." + labels[labels.length - 1];
+    }
+
+    @Benchmark
+    public String getHost() throws MalformedURLException {
+        return DomainParser.getHost(urls[nextIndex()]);
+    }
+
+    @Benchmark
+    public String getRegistrableDomain() {
+        return DomainParser.getRegistrableDomain(hosts[nextIndex()]);
+    }
+
+    @Benchmark
+    public String getHostAndRegistrableDomain() throws MalformedURLException {
+        return DomainParser.getRegistrableDomain(DomainParser
+                .getHost(urls[nextIndex()]));
+    }
+}
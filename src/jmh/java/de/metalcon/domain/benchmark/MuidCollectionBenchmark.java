@@ -0,0 +1,106 @@
+package de.metalcon.domain.benchmark;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.metalcon.domain.Muid;
+import de.metalcon.domain.collection.MuidArray;
+import de.metalcon.domain.collection.MuidSet;
+import de.metalcon.domain.storage.ShardingScheme;
+
+/**
+ * Muid collections compared with their boxed counterparts and the storage
+ * path layouts of ShardingScheme
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MuidCollectionBenchmark {
+
+    @Param({
+        "1024", "1048576"
+    })
+    public int size;
+
+    private long[] muids;
+
+    private MuidSet muidSet;
+
+    private Set<Muid> hashSet;
+
+    private MuidArray sorted;
+
+    private final ShardingScheme wide = new ShardingScheme(2, 256);
+
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        muids = new long[size];
+        UidConverterBenchmark.fill(muids, new Random(42));
+        muidSet = new MuidSet(size);
+        hashSet = new HashSet<Muid>(size * 2);
+        for (final long muid : muids) {
+            muidSet.add(muid);
+            hashSet.add(Muid.createFromID(muid));
+        }
+        sorted = MuidArray.allocateDirect(size);
+    }
+
+    private int nextIndex() {
+        return next++ & (size - 1);
+    }
+
+    @Benchmark
+    public boolean muidSetContains() {
+        return muidSet.contains(muids[nextIndex()]);
+    }
+
+    @Benchmark
+    public boolean hashSetContains() {
+        return hashSet.contains(Muid.createFromID(muids[nextIndex()]));
+    }
+
+    /**
+     * copies and sorts all Muids per invocation
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 5)
+    @Measurement(iterations = 20)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public MuidArray sortByTimestamp() {
+        sorted.clear();
+        sorted.addAll(muids);
+        sorted.sortByTimestamp();
+        return sorted;
+    }
+
+    @Benchmark
+    public String legacyPath() {
+        return ShardingScheme.LEGACY.getPath(muids[nextIndex()]);
+    }
+
+    @Benchmark
+    public String widePath() {
+        return wide.getPath(muids[nextIndex()]);
+    }
+}
@@ -0,0 +1,105 @@
+package de.metalcon.domain.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.metalcon.domain.Muid;
+import de.metalcon.domain.MuidGenerator;
+import de.metalcon.domain.OverloadPolicy;
+import de.metalcon.domain.UidType;
+import de.metalcon.exceptions.ServiceOverloadedException;
+
+/**
+ * creation of new Muids by 1, 4, 16 and 64 threads sharing one type<br>
+ * <br>
+ * A type allows 0xFFFF+1 Muids per second which a benchmark exceeds within
+ * milliseconds. The generator therefore borrows fine times of future seconds
+ * without limit, so the benchmark measures the cost of the generator instead
+ * of its rate limit.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MuidCreateBenchmark {
+
+    private MuidGenerator generator;
+
+    private OverloadPolicy overloadPolicy;
+
+    private int maximumBorrowedSeconds;
+
+    @Setup
+    public void setUp() {
+        generator = Muid.getGenerator();
+        overloadPolicy = generator.getOverloadPolicy();
+        maximumBorrowedSeconds = generator.getMaximumBorrowedSeconds();
+        generator.setOverloadPolicy(OverloadPolicy.BORROW);
+        generator.setMaximumBorrowedSeconds(Integer.MAX_VALUE);
+    }
+
+    @TearDown
+    public void tearDown() {
+        generator.setOverloadPolicy(overloadPolicy);
+        generator.setMaximumBorrowedSeconds(maximumBorrowedSeconds);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Muid create1() throws ServiceOverloadedException {
+        return Muid.create(UidType.BAND);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Muid create4() throws ServiceOverloadedException {
+        return Muid.create(UidType.BAND);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public Muid create16() throws ServiceOverloadedException {
+        return Muid.create(UidType.BAND);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public Muid create64() throws ServiceOverloadedException {
+        return Muid.create(UidType.BAND);
+    }
+
+    /**
+     * should not allocate at all
+     */
+    @Benchmark
+    @Threads(1)
+    public long nextId1() throws ServiceOverloadedException {
+        return Muid.nextId(UidType.BAND);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public long nextId16() throws ServiceOverloadedException {
+        return Muid.nextId(UidType.BAND);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public long[] reserve1024() {
+        return Muid.reserve(UidType.BAND, 1024);
+    }
+}
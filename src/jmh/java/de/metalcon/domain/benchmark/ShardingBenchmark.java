@@ -0,0 +1,129 @@
+package de.metalcon.domain.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.metalcon.domain.UidType;
+import de.metalcon.domain.helper.UidConverter;
+import de.metalcon.domain.storage.ShardingScheme;
+
+/**
+ * how evenly the Muids created during a few seconds are distributed over the
+ * leaf directories of a ShardingScheme<br>
+ * <br>
+ * Besides the time to index the stream, the secondary results report the
+ * number of leaves used, the smallest and largest leaf and the standard
+ * deviation of the leaf sizes relative to their mean.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ShardingBenchmark {
+
+    /**
+     * depth x fanout of the layout, legacy for ShardingScheme.LEGACY
+     */
+    @Param({
+        "legacy", "3x16", "2x256", "3x256"
+    })
+    public String layout;
+
+    /**
+     * number of Muids, created at the maximum rate of a source
+     */
+    @Param({
+        "1048576"
+    })
+    public int size;
+
+    private ShardingScheme scheme;
+
+    private long[] muids;
+
+    /**
+     * leaf balance of the last invocation
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Balance {
+
+        public long usedLeaves;
+
+        public long minLeaf;
+
+        public long maxLeaf;
+
+        public double deviationPerMean;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            usedLeaves = 0;
+            minLeaf = 0;
+            maxLeaf = 0;
+            deviationPerMean = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        if ("legacy".equals(layout)) {
+            scheme = ShardingScheme.LEGACY;
+        } else {
+            final int x = layout.indexOf('x');
+            scheme =
+                    new ShardingScheme(Integer.parseInt(layout.substring(0, x)),
+                            Integer.parseInt(layout.substring(x + 1)));
+        }
+
+        // all IDs of every second, as MuidGenerator.reserve creates them
+        muids = new long[size];
+        final int perSecond = UidConverter.getMaximumMuidID() + 1;
+        final int start = (int) (System.currentTimeMillis() / 1000);
+        for (int i = 0; i < size; i++) {
+            muids[i] =
+                    UidConverter.calculateMuidWithoutChecking(
+                            UidType.IMAGE.getRawIdentifier(), (byte) 0, start
+                                    + i / perSecond, (short) (i % perSecond));
+        }
+    }
+
+    @Benchmark
+    public int[] leafBalance(final Balance balance) {
+        final int[] leaves = new int[(int) scheme.getLeafCount()];
+        for (final long muid : muids) {
+            leaves[(int) scheme.getLeafIndex(muid)]++;
+        }
+
+        int min = Integer.MAX_VALUE, max = 0, used = 0;
+        final double mean = muids.length / (double) leaves.length;
+        double variance = 0;
+        for (final int count : leaves) {
+            min = Math.min(min, count);
+            max = Math.max(max, count);
+            used += count > 0 ? 1 : 0;
+            variance += (count - mean) * (count - mean);
+        }
+        balance.usedLeaves = used;
+        balance.minLeaf = min;
+        balance.maxLeaf = max;
+        balance.deviationPerMean =
+                Math.sqrt(variance / leaves.length) / mean;
+        return leaves;
+    }
+}
@@ -0,0 +1,84 @@
+package de.metalcon.domain.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.metalcon.domain.Muid;
+import de.metalcon.domain.MuidPool;
+import de.metalcon.domain.Uid;
+import de.metalcon.domain.helper.UidConverter;
+
+/**
+ * Uid.createFromID for long and String values, with and without a MuidPool
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UidBenchmark {
+
+    /**
+     * capacity of the MuidPool, 0 to create Muids without pool
+     */
+    @Param({
+        "0", "65536"
+    })
+    public int poolCapacity;
+
+    private final long[] muids = new long[UidConverterBenchmark.SIZE];
+
+    private final String[] strings = new String[UidConverterBenchmark.SIZE];
+
+    private int next;
+
+    @Setup
+    public void setUp() {
+        UidConverterBenchmark.fill(muids, new Random(42));
+        for (int i = 0; i < muids.length; i++) {
+            strings[i] = UidConverter.serialize(muids[i]);
+        }
+        Muid.setPool(poolCapacity == 0 ? null : new MuidPool(poolCapacity));
+    }
+
+    @TearDown
+    public void tearDown() {
+        Muid.setPool(null);
+    }
+
+    private int nextIndex() {
+        return next++ & (UidConverterBenchmark.SIZE - 1);
+    }
+
+    @Benchmark
+    public Uid createFromLong() {
+        return Uid.createFromID(muids[nextIndex()]);
+    }
+
+    @Benchmark
+    public Uid createFromString() {
+        return Uid.createFromID(strings[nextIndex()]);
+    }
+
+    /**
+     * the alphanumeric form of a new Uid, which is cached afterwards
+     */
+    @Benchmark
+    public String createAndToString() {
+        return Uid.createFromID(muids[nextIndex()]).toString();
+    }
+}
@@ -0,0 +1,123 @@
+package de.metalcon.domain.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.metalcon.domain.UidType;
+import de.metalcon.domain.helper.UidConverter;
+
+/**
+ * conversions of Muid values: alphanumeric form, storage path and type<br>
+ * <br>
+ * Every invocation takes the next of SIZE random Muids so neither the JIT nor
+ * the branch predictor can specialize on a single value.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UidConverterBenchmark {
+
+    /**
+     * number of distinct Muids, a power of two
+     */
+    public static final int SIZE = 1 << 10;
+
+    private final long[] muids = new long[SIZE];
+
+    private final String[] strings = new String[SIZE];
+
+    private final byte[] bulkSerialized = new byte[SIZE * 11];
+
+    private final long[] bulkDeserialized = new long[SIZE];
+
+    private int next;
+
+    @Setup
+    public void setUp() {
+        fill(muids, new Random(42));
+        for (int i = 0; i < SIZE; i++) {
+            strings[i] = UidConverter.serialize(muids[i]);
+        }
+        UidConverter.serializeAll(muids, bulkSerialized);
+    }
+
+    /**
+     * Fills an array with random Muid values of all types except URL
+     *
+     * @param muids
+     *            array to be filled
+     * @param random
+     *            source of the values
+     */
+    static void fill(final long[] muids, final Random random) {
+        final UidType[] types = UidType.values();
+        for (int i = 0; i < muids.length; i++) {
+            UidType type;
+            do {
+                type = types[random.nextInt(types.length)];
+            } while (type == UidType.URL);
+            // timestamp 0 is reserved for the empty Muids
+            muids[i] =
+                    UidConverter.calculateMuidWithoutChecking(
+                            type.getRawIdentifier(),
+                            (byte) random.nextInt(32), random.nextInt() | 1,
+                            (short) random.nextInt());
+        }
+    }
+
+    private int nextIndex() {
+        return next++ & (SIZE - 1);
+    }
+
+    @Benchmark
+    public String serialize() {
+        return UidConverter.serialize(muids[nextIndex()]);
+    }
+
+    @Benchmark
+    public long deserialize() {
+        return UidConverter.deserialize(strings[nextIndex()]);
+    }
+
+    /**
+     * all SIZE Muids per invocation
+     */
+    @Benchmark
+    public byte[] serializeAll() {
+        UidConverter.serializeAll(muids, bulkSerialized);
+        return bulkSerialized;
+    }
+
+    /**
+     * all SIZE Muids per invocation
+     */
+    @Benchmark
+    public long[] deserializeAll() {
+        UidConverter.deserializeAll(bulkSerialized, bulkDeserialized);
+        return bulkDeserialized;
+    }
+
+    @Benchmark
+    public String getMuidStoragePath() {
+        return UidConverter.getMuidStoragePath(muids[nextIndex()]);
+    }
+
+    @Benchmark
+    public UidType parseId() {
+        return UidType.parseId(muids[nextIndex()]);
+    }
+}
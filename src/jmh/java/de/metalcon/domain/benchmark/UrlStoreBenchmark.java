@@ -0,0 +1,192 @@
+package de.metalcon.domain.benchmark;
+
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.metalcon.domain.storage.UrlStore;
+
+/**
+ * UrlStore lookups against a LevelDB in a temporary directory<br>
+ * <br>
+ * The store is filled with SIZE URLs of DOMAINS domains before the
+ * measurement. getOrCreateID and getUrl then look up existing mappings,
+ * createID stores a new URL per invocation. The page benchmarks resolve
+ * pages of BATCH links one at a time and as a batch. Each benchmark runs with
+ * and without writing new URLs behind.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UrlStoreBenchmark {
+
+    public static final int SIZE = 1 << 14;
+
+    public static final int DOMAINS = 64;
+
+    /**
+     * links per page
+     */
+    public static final int BATCH = 256;
+
+    /**
+     * UrlStore.GROUP_COMMIT_PROPERTY
+     */
+    @Param({
+        "false", "true"
+    })
+    public boolean groupCommit;
+
+    private Path directory;
+
+    private final String[] urls = new String[SIZE];
+
+    private final long[] ids = new long[SIZE];
+
+    /**
+     * index of the next URL looked up, shared by all threads
+     */
+    private int next;
+
+    /**
+     * number of URLs created by createID
+     */
+    private long created;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("muid-benchmark");
+        // must be set before UrlStore is initialized
+        System.setProperty(UrlStore.DB_PATH_PROPERTY, directory.toString());
+        System.setProperty(UrlStore.GROUP_COMMIT_PROPERTY,
+                Boolean.toString(groupCommit));
+
+        for (int i = 0; i < SIZE; i++) {
+            urls[i] = url(i % DOMAINS, i);
+            ids[i] = UrlStore.getOrCreateID(urls[i]);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        UrlStore.flush().join();
+        // the database stays open until the JVM of the fork exits
+        Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+
+            @Override
+            public FileVisitResult visitFile(
+                    final Path file,
+                    final BasicFileAttributes attributes) throws IOException {
+                Files.deleteIfExists(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(
+                    final Path dir,
+                    final IOException e) throws IOException {
+                Files.deleteIfExists(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private static String url(final int domain, final long file) {
+        return "http://www" + domain + ".example" + domain + ".org/files/"
+                + file + ".html";
+    }
+
+    private int nextIndex() {
+        return next++ & (SIZE - 1);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public long getOrCreateIDExisting() throws MalformedURLException {
+        return UrlStore.getOrCreateID(urls[nextIndex()]);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long getOrCreateIDExisting4() throws MalformedURLException {
+        return UrlStore.getOrCreateID(urls[nextIndex()]);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public long getOrCreateIDNew() throws MalformedURLException {
+        return UrlStore.getOrCreateID(url((int) (created % DOMAINS), SIZE
+                + created++));
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String getUrl() {
+        return UrlStore.getUrl(ids[nextIndex()]);
+    }
+
+    /**
+     * @return BATCH new URLs of all domains
+     */
+    private List<String> nextPage() {
+        final List<String> page = new ArrayList<String>(BATCH);
+        for (int i = 0; i < BATCH; i++) {
+            page.add(url((int) (created % DOMAINS), SIZE + created++));
+        }
+        return page;
+    }
+
+    @Benchmark
+    @Threads(1)
+    @OperationsPerInvocation(BATCH)
+    public long getOrCreateIDNewPage() throws MalformedURLException {
+        long sum = 0;
+        for (final String url : nextPage()) {
+            sum += UrlStore.getOrCreateID(url);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @Threads(1)
+    @OperationsPerInvocation(BATCH)
+    public long[] getOrCreateIDsNewPage() throws MalformedURLException {
+        return UrlStore.getOrCreateIDs(nextPage());
+    }
+
+    @Benchmark
+    @Threads(1)
+    @OperationsPerInvocation(BATCH)
+    public String[] getUrls() {
+        final int from = nextIndex() & -BATCH;
+        next += BATCH - 1;
+        return UrlStore.getUrls(Arrays.copyOfRange(ids, from, from + BATCH));
+    }
+}
@@ -1,10 +1,9 @@
 package de.metalcon.domain;
 
 import java.io.Serializable;
-import java.util.Map;
-import java.util.TreeMap;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.Comparator;
 
+import de.metalcon.domain.helper.SystemTimeSource;
 import de.metalcon.domain.helper.UidConverter;
 import de.metalcon.exceptions.MetalconRuntimeException;
 import de.metalcon.exceptions.ServiceOverloadedException;
@@ -18,9 +17,38 @@ public class Muid extends Uid implements Serializable {
 
     private static final long serialVersionUID = 6474090689412027428L;
 
-    private static int lastCreationTime = 0;
+    /**
+     * orders Muids by their timestamp only, the order
+     * MuidArray.sortByTimestamp() produces when used with a stable sort
+     */
+    public static final Comparator<Muid> TIMESTAMP_ORDER =
+            new Comparator<Muid>() {
 
-    private static Map<UidType, Muid> emptyMuids = new TreeMap<UidType, Muid>();
+                @Override
+                public int compare(final Muid m1, final Muid m2) {
+                    return Long.compare(m1.getTimestamp() & 0xFFFFFFFFL,
+                            m2.getTimestamp() & 0xFFFFFFFFL);
+                }
+            };
+
+    /**
+     * generator used by create(UidType). It reads the system clock, use
+     * getGenerator().setTimeSource to switch to a CachedTimeSource.
+     */
+    private static final MuidGenerator generator = new MuidGenerator(
+            sourceID, new SystemTimeSource());
+
+    /**
+     * pool of canonical instances used by createFromID or null if Muids are
+     * not pooled
+     */
+    private static volatile MuidPool pool = null;
+
+    /**
+     * empty Muid of every type indexed by the raw type identifier
+     */
+    private static final Muid[] emptyMuids =
+            new Muid[UidType.getLargestAllowedType()];
 
     public static final Muid EMPTY_BAND_MUID = addEmptyMuid(UidType.BAND);
 
@@ -53,15 +81,10 @@ public class Muid extends Uid implements Serializable {
         Muid emptyMuid =
                 new Muid(UidConverter.calculateMuid(type.getRawIdentifier(),
                         (byte) 0, 0, (short) 0));
-        emptyMuids.put(type, emptyMuid);
+        emptyMuids[type.getRawIdentifier()] = emptyMuid;
         return emptyMuid;
     }
 
-    /**
-     * The number of MUIDs created at <lastCreationTime>
-     */
-    private static AtomicInteger lastCreatedID = new AtomicInteger(0);
-
     /**
      * 
      * @param id
@@ -69,14 +92,45 @@ public class Muid extends Uid implements Serializable {
      */
     public static Muid createFromID(final long id) {
         if (UidConverter.getTimestamp(id) == 0) {
-            Muid muid = emptyMuids.get(UidType.parseId(id));
-            if (muid.value != id) {
+            final short type = UidConverter.getType(id);
+            Muid muid = type < emptyMuids.length ? emptyMuids[type] : null;
+            if (muid == null || muid.value != id) {
                 throw new MetalconRuntimeException(
                         "You've tried to create a Muid with a 0-timestamp but with source or finetime not being 0. Only empty Muids may have 0 timestamps and should only have the type being not 0.");
             }
             return muid;
         }
-        return new Muid(id);
+
+        final MuidPool muidPool = pool;
+        if (muidPool == null) {
+            return new Muid(id);
+        }
+        Muid muid = muidPool.get(id);
+        if (muid == null) {
+            muid = new Muid(id);
+            muidPool.put(muid);
+        }
+        return muid;
+    }
+
+    /**
+     * Sets the pool of canonical instances createFromID should return. If a
+     * pool is set Muids created from the same value will mostly be the same
+     * instance which saves allocations for frequently parsed Muids.
+     * 
+     * @param muidPool
+     *            The pool to be used or null to disable pooling
+     */
+    public static void setPool(final MuidPool muidPool) {
+        pool = muidPool;
+    }
+
+    /**
+     * @return The pool of canonical instances used by createFromID or null if
+     *         Muids are not pooled
+     */
+    public static MuidPool getPool() {
+        return pool;
     }
 
     /**
@@ -99,7 +153,19 @@ public class Muid extends Uid implements Serializable {
      * @return An empty Muid with the given type
      */
     public static Muid getEmptyType(final UidType type) {
-        return emptyMuids.get(type);
+        return emptyMuids[type.getRawIdentifier()];
+    }
+
+    /**
+     * Returns the generator used to create new Muids. Use it to configure how
+     * an exhausted fine time space is handled or to read a cached clock, e.g.
+     * getGenerator().setTimeSource(new MonotonicTimeSource(new
+     * CachedTimeSource(new SystemTimeSource(), 10))).
+     * 
+     * @return The generator behind create(UidType)
+     */
+    public static MuidGenerator getGenerator() {
+        return generator;
     }
 
     /**
@@ -112,45 +178,56 @@ public class Muid extends Uid implements Serializable {
      *            The type of the Muid to be created
      * @throws ServiceOverloadedException
      *             Tto reduce the load you should not try to create a MUID again
-     *             if this exception has been thrown!
+     *             if this exception has been thrown! Only thrown if the
+     *             OverloadPolicy of the generator is FAIL.
      * @return A new unique Muid object
      */
     public static Muid create(final UidType type)
             throws ServiceOverloadedException {
-        if (type == UidType.URL) {
-            throw new MetalconRuntimeException(
-                    "Tried to create a Muid object with a URL type. Please use UrlID instead.");
-        }
-
-        int timestamp = (int) (System.currentTimeMillis() / 1000);
-        short ID = 0;
-        if (timestamp == lastCreationTime) {
-            // We have already created a MUID during the current second
-            if (lastCreatedID.intValue() == UidConverter.getMaximumMuidID()) {
-                // We've reached the Muid per second limit
-                throw new ServiceOverloadedException(
-                        "Alreay created more then "
-                                + UidConverter.getMaximumMuidID()
-                                + " during the current second");
-            }
+        return generator.create(type);
+    }
 
-            ID = (short) lastCreatedID.incrementAndGet();
-        } else {
-            lastCreatedID.set(0);
-            lastCreationTime = timestamp;
-        }
+    /**
+     * Creates the value of a new Muid of the given type without allocating a
+     * Muid object
+     *
+     * @param type
+     *            The type of the Muid to be created
+     * @throws ServiceOverloadedException
+     *             Tto reduce the load you should not try to create a MUID again
+     *             if this exception has been thrown!
+     * @return The value of a new unique Muid
+     */
+    public static long nextId(final UidType type)
+            throws ServiceOverloadedException {
+        return generator.nextId(type);
+    }
 
-        return new Muid(UidConverter.calculateMuid(type.getRawIdentifier(),
-                sourceID, timestamp, ID));
+    /**
+     * Reserves the values of n new Muids of the given type at once
+     *
+     * If the fine times left in the current second do not suffice the rest of
+     * the Muids is created during the following second(s)
+     *
+     * @param type
+     *            The type of the Muids to be created
+     * @param n
+     *            The number of Muids to be created
+     * @return The values of n new unique Muids in ascending order
+     * @see MuidGenerator#reserve(UidType, int)
+     */
+    public static long[] reserve(final UidType type, final int n) {
+        return generator.reserve(type, n);
     }
 
     /**
-     * create new Muid instance with an already given value
+     * create new Muid instance with an already given value, bypassing the
+     * pool
      * 
      * @param value
      *            unique identifier
      */
-    private Muid(
+    Muid(
             final long value) {
         super(value);
     }
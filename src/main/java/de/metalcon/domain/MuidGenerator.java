@@ -0,0 +1,532 @@
+package de.metalcon.domain;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+import de.metalcon.domain.helper.SystemTimeSource;
+import de.metalcon.domain.helper.TimeSource;
+import de.metalcon.domain.helper.UidConverter;
+import de.metalcon.domain.metrics.MuidMetrics;
+import de.metalcon.exceptions.MetalconRuntimeException;
+import de.metalcon.exceptions.ServiceOverloadedException;
+
+/**
+ * generator for new Muid values of a single source<br>
+ * <br>
+ * The second of the last creation and the fine time counter within that second
+ * are packed into one 64 bit state word (second in the upper 32 bits, next
+ * fine time in the lower 32 bits). As both are always read and updated
+ * together no two threads can ever receive the same (second, fine time) pair.<br>
+ * Within a second a Muid (or a block of Muids) costs a single atomic addition.
+ * Only the first creation of a new second has to compare-and-set the state
+ * word.<br>
+ * <br>
+ * Muids of different types can not collide so every type has its own state
+ * word and thereby its own 0xFFFF+1 Muids per second. The state words are
+ * padded to separate cache lines so creating Muids of one type does not slow
+ * down the creation of other types.<br>
+ * <br>
+ * What happens if the fine times of a second are exhausted is defined by the
+ * OverloadPolicy of the generator. The generator counts how often each policy
+ * has been applied.<br>
+ * Overloads and the number of Muids created per type and second are reported
+ * to MuidMetrics. The count of a second is reported by the thread moving the
+ * state word on to a newer second, so the fast path records nothing.<br>
+ * <br>
+ * The timestamps are read from a TimeSource. A type's state word never moves
+ * back to an older second, so a clock stepping backwards can not lead to
+ * duplicate Muids.
+ */
+public class MuidGenerator {
+
+    /**
+     * source ID stored in every Muid created by this generator
+     */
+    private final byte sourceID;
+
+    /**
+     * time source the timestamps of the created Muids are read from
+     */
+    private volatile TimeSource timeSource;
+
+    /**
+     * milliseconds a thread waiting for the next second parks before it reads
+     * the time source again
+     */
+    private static final long PARK_MILLIS = 10;
+
+    /**
+     * distance between the state words of two types: 16 longs span 128 bytes
+     * which keeps neighbouring state words out of the same (pair of) cache
+     * lines
+     */
+    private static final int SLOT_STRIDE = 16;
+
+    /**
+     * per type: second of the last creation (upper 32 bits) and the next fine
+     * time to be handed out within that second (lower 32 bits)
+     */
+    private final AtomicLongArray states =
+            new AtomicLongArray((1 << 9) * SLOT_STRIDE);
+
+    /**
+     * reaction to an exhausted fine time space
+     */
+    private volatile OverloadPolicy overloadPolicy = OverloadPolicy.FAIL;
+
+    /**
+     * number of seconds the generator may run ahead of the clock when
+     * borrowing
+     */
+    private volatile int maximumBorrowedSeconds = 1;
+
+    /**
+     * number of times each policy has been applied (indexed by ordinal)
+     */
+    private final AtomicLongArray overloads = new AtomicLongArray(
+            OverloadPolicy.values().length);
+
+    /**
+     * create a new generator for the given source reading the system clock<br>
+     * There must not be two generators with the same source ID at a time
+     * otherwise both will create the same Muids.
+     *
+     * @param sourceID
+     *            The source of the creator of the Muids (the node running this
+     *            code)
+     */
+    public MuidGenerator(
+            final byte sourceID) {
+        this(sourceID, new SystemTimeSource());
+    }
+
+    /**
+     * create a new generator for the given source<br>
+     * There must not be two generators with the same source ID at a time
+     * otherwise both will create the same Muids.
+     *
+     * @param sourceID
+     *            The source of the creator of the Muids (the node running this
+     *            code)
+     * @param timeSource
+     *            time source the timestamps of the created Muids are read from
+     */
+    public MuidGenerator(
+            final byte sourceID,
+            final TimeSource timeSource) {
+        if (!UidConverter.checkSource(sourceID)) {
+            throw new MetalconRuntimeException(
+                    "Muid Source may not be larger or equal to " + (1 << 5));
+        }
+        if (timeSource == null) {
+            throw new IllegalArgumentException("Time source may not be null");
+        }
+        this.sourceID = sourceID;
+        this.timeSource = timeSource;
+    }
+
+    /**
+     * @return source ID stored in every Muid created by this generator
+     */
+    public byte getSourceID() {
+        return sourceID;
+    }
+
+    /**
+     * @return reaction to an exhausted fine time space
+     */
+    public OverloadPolicy getOverloadPolicy() {
+        return overloadPolicy;
+    }
+
+    /**
+     * @param overloadPolicy
+     *            reaction to an exhausted fine time space
+     */
+    public void setOverloadPolicy(final OverloadPolicy overloadPolicy) {
+        if (overloadPolicy == null) {
+            throw new IllegalArgumentException("Overload policy may not be null");
+        }
+        this.overloadPolicy = overloadPolicy;
+    }
+
+    /**
+     * @return time source the timestamps of the created Muids are read from
+     */
+    public TimeSource getTimeSource() {
+        return timeSource;
+    }
+
+    /**
+     * Replaces the time source, e.g. by a CachedTimeSource. Muids are never
+     * created for a second older than the seconds already used, even if the
+     * new time source lags behind the old one.
+     *
+     * @param timeSource
+     *            time source the timestamps of the created Muids are read from
+     */
+    public void setTimeSource(final TimeSource timeSource) {
+        if (timeSource == null) {
+            throw new IllegalArgumentException("Time source may not be null");
+        }
+        this.timeSource = timeSource;
+    }
+
+    /**
+     * @return number of seconds the generator may run ahead of the clock when
+     *         borrowing
+     */
+    public int getMaximumBorrowedSeconds() {
+        return maximumBorrowedSeconds;
+    }
+
+    /**
+     * @param maximumBorrowedSeconds
+     *            number of seconds the generator may run ahead of the clock
+     *            when borrowing
+     */
+    public void setMaximumBorrowedSeconds(final int maximumBorrowedSeconds) {
+        if (maximumBorrowedSeconds < 0) {
+            throw new IllegalArgumentException(
+                    "Number of borrowed seconds may not be negative: "
+                            + maximumBorrowedSeconds);
+        }
+        this.maximumBorrowedSeconds = maximumBorrowedSeconds;
+    }
+
+    /**
+     * Returns how often the given policy has been applied. A BORROW policy
+     * that reached the maximum number of borrowed seconds is counted as WAIT.
+     *
+     * @param policy
+     *            overload policy
+     * @return number of times the policy has been applied
+     */
+    public long getOverloadCount(final OverloadPolicy policy) {
+        return overloads.get(policy.ordinal());
+    }
+
+    /**
+     * Returns how many Muids of a type have been created during the current
+     * second, i.e. how close the type is to its limit of 0xFFFF+1 Muids per
+     * second
+     *
+     * @param type
+     *            raw identifier of the type
+     * @return number of Muids created during the current second
+     */
+    public int getCurrentCount(final short type) {
+        final long state = states.get(getSlot(type));
+        if ((state >>> 32) != timeSource.currentSecond()) {
+            return 0;
+        }
+        return (int) Math.min(state & 0xFFFFFFFFL,
+                UidConverter.getMaximumMuidID() + 1);
+    }
+
+    /**
+     * Creates a new Muid object of the given type
+     *
+     * @param type
+     *            The type of the Muid to be created
+     * @throws ServiceOverloadedException
+     *             if the overload policy is FAIL and more than 0xFFFF+1 Muids
+     *             of the given type have been created during the current
+     *             second
+     * @return A new unique Muid object
+     */
+    public Muid create(final UidType type) throws ServiceOverloadedException {
+        if (type == UidType.URL) {
+            throw new MetalconRuntimeException(
+                    "Tried to create a Muid object with a URL type. Please use UrlID instead.");
+        }
+        // a new value can not be pooled yet, pooling it would evict hot Muids
+        return new Muid(nextValue(type.getRawIdentifier()));
+    }
+
+    /**
+     * Calculates the value of a new Muid of the given type without creating a
+     * Muid object. As the type is an enum constant its raw identifier is known
+     * to be valid so no range checks are performed and nothing is allocated.
+     *
+     * @param type
+     *            The type of the Muid to be created
+     * @throws ServiceOverloadedException
+     *             if the overload policy is FAIL and more than 0xFFFF+1 Muids
+     *             of the given type have been created during the current
+     *             second
+     * @return The value of a new unique Muid
+     */
+    public long nextId(final UidType type) throws ServiceOverloadedException {
+        if (type == UidType.URL) {
+            throw new MetalconRuntimeException(
+                    "Tried to create a Muid object with a URL type. Please use UrlID instead.");
+        }
+        return nextValue(type.getRawIdentifier());
+    }
+
+    /**
+     * Calculates the value of a new Muid of a type registered at the
+     * UidTypeRegistry, e.g. a type without UidType constant
+     *
+     * @param rawType
+     *            The raw identifier of the type of the Muid to be created
+     * @throws ServiceOverloadedException
+     *             if the overload policy is FAIL and more than 0xFFFF+1 Muids
+     *             of the given type have been created during the current
+     *             second
+     * @return The value of a new unique Muid
+     */
+    public long nextId(final short rawType) throws ServiceOverloadedException {
+        if (!UidTypeRegistry.isRegistered(rawType)) {
+            throw new MetalconRuntimeException("Unknown Muid type: " + rawType);
+        }
+        if (rawType == UidType.URL.getRawIdentifier()) {
+            throw new MetalconRuntimeException(
+                    "Tried to create a Muid object with a URL type. Please use UrlID instead.");
+        }
+        return nextValue(rawType);
+    }
+
+    /**
+     * Reserves a block of new Muid values of the given type. The fine times
+     * within a second are claimed in one atomic step. If the block does not
+     * fit into the fine times left in the current second it is split and the
+     * rest is created during the following second(s): a reservation is never
+     * rejected, the FAIL overload policy is treated as WAIT.
+     *
+     * @param type
+     *            The type of the Muids to be created
+     * @param n
+     *            number of Muids to be created
+     * @return The values of n new unique Muids in ascending order
+     */
+    public long[] reserve(final UidType type, final int n) {
+        if (type == UidType.URL) {
+            throw new MetalconRuntimeException(
+                    "Tried to create a Muid object with a URL type. Please use UrlID instead.");
+        }
+        if (n < 0) {
+            throw new IllegalArgumentException(
+                    "Number of Muids to reserve may not be negative: " + n);
+        }
+
+        final short rawType = type.getRawIdentifier();
+        final int slot = getSlot(rawType);
+        final int maxFineTime = UidConverter.getMaximumMuidID();
+        final OverloadPolicy policy =
+                overloadPolicy == OverloadPolicy.FAIL ? OverloadPolicy.WAIT
+                        : overloadPolicy;
+        final long[] muids = new long[n];
+        int reserved = 0;
+        while (reserved < n) {
+            final long claimed =
+                    claim(slot, Math.min(n - reserved, maxFineTime + 1));
+            final int second = (int) (claimed >>> 32);
+            final int first = (int) claimed;
+            if (first > maxFineTime) {
+                try {
+                    overloaded(slot, claimed, policy);
+                } catch (ServiceOverloadedException e) {
+                    // never thrown by WAIT and BORROW
+                    throw new MetalconRuntimeException(e.getMessage());
+                }
+                continue;
+            }
+
+            final int last = Math.min(first + n - reserved - 1, maxFineTime);
+            for (int fineTime = first; fineTime <= last; fineTime++) {
+                muids[reserved++] =
+                        UidConverter.calculateMuidWithoutChecking(rawType,
+                                sourceID, second, (short) fineTime);
+            }
+        }
+        return muids;
+    }
+
+    /**
+     * Calculates the value of the next Muid of the given type
+     *
+     * @param type
+     *            The raw identifier of the type of the Muid to be created
+     * @throws ServiceOverloadedException
+     *             if the overload policy is FAIL and more than 0xFFFF+1 Muids
+     *             of the given type have been created during the current
+     *             second
+     * @return The value of a new unique Muid
+     */
+    long nextValue(final short type) throws ServiceOverloadedException {
+        final int slot = getSlot(type);
+        long claimed;
+        while ((int) (claimed = claim(slot, 1)) > UidConverter
+                .getMaximumMuidID()) {
+            overloaded(slot, claimed, overloadPolicy);
+        }
+        return UidConverter.calculateMuidWithoutChecking(type, sourceID,
+                (int) (claimed >>> 32), (short) claimed);
+    }
+
+    /**
+     * Applies an overload policy to an exhausted fine time space. Returns
+     * when the claim should be retried.
+     *
+     * @param slot
+     *            index of the state word of the type
+     * @param claimed
+     *            second (upper 32 bits) and fine time (lower 32 bits) of the
+     *            exhausted claim
+     * @param policy
+     *            overload policy to apply
+     * @throws ServiceOverloadedException
+     *             if the policy is FAIL
+     */
+    private void overloaded(
+            final int slot,
+            final long claimed,
+            final OverloadPolicy policy) throws ServiceOverloadedException {
+        final long second = claimed >>> 32;
+        switch (policy) {
+            case BORROW:
+                final long borrowed = second + 1;
+                final int maxBorrowed = maximumBorrowedSeconds;
+                if (borrowed <= timeSource.currentSecond() + maxBorrowed) {
+                    /*
+                     * Move the exhausted state word on to the next second
+                     * unless another thread already did
+                     */
+                    long seen = states.get(slot);
+                    while ((seen >>> 32) == second) {
+                        if (states.compareAndSet(slot, seen, borrowed << 32)) {
+                            overloads.incrementAndGet(OverloadPolicy.BORROW
+                                    .ordinal());
+                            MuidMetrics.recordOverload(getType(slot),
+                                    OverloadPolicy.BORROW);
+                            secondPassed(slot, seen);
+                            break;
+                        }
+                        seen = states.get(slot);
+                    }
+                    return;
+                }
+
+                // wait until borrowing is allowed again
+                overloads.incrementAndGet(OverloadPolicy.WAIT.ordinal());
+                MuidMetrics.recordOverload(getType(slot), OverloadPolicy.WAIT);
+                awaitNextSecond(second - maxBorrowed);
+                return;
+
+            case WAIT:
+                overloads.incrementAndGet(OverloadPolicy.WAIT.ordinal());
+                MuidMetrics.recordOverload(getType(slot), OverloadPolicy.WAIT);
+                awaitNextSecond(second);
+                return;
+
+            default:
+                overloads.incrementAndGet(OverloadPolicy.FAIL.ordinal());
+                MuidMetrics.recordOverload(getType(slot), OverloadPolicy.FAIL);
+                throw new ServiceOverloadedException(
+                        "Alreay created more then "
+                                + UidConverter.getMaximumMuidID()
+                                + " during the current second");
+        }
+    }
+
+    /**
+     * Claims a range of fine times in the state word of a type
+     *
+     * @param slot
+     *            index of the state word of the type
+     * @param count
+     *            number of fine times to be claimed (at most 0xFFFF+1)
+     * @return second (upper 32 bits) and first fine time (lower 32 bits) of
+     *         the claimed range. The second may lie in the future if it has
+     *         been borrowed. The range ends at the maximum fine time even
+     *         if less than count fine times are left. If the first fine time
+     *         is larger than the maximum fine time the second is exhausted.
+     */
+    private long claim(final int slot, final int count) {
+        final long now = timeSource.currentSecond();
+        while (true) {
+            /*
+             * Optimistically take the next fine times of the current state.
+             * The lower 32 bits can not overflow into the second: that would
+             * take 2^16 calls claiming the maximum count within one second.
+             */
+            final long current = states.getAndAdd(slot, count);
+            if (now <= current >>> 32) {
+                /*
+                 * Also taken if our clock reading is older than the state (we
+                 * were overtaken by another thread): the Muids are then
+                 * created within the newer second which is still unique
+                 */
+                return current;
+            }
+
+            /*
+             * First claim of a new second: the fine times taken above belong
+             * to an old second and are simply dropped. Install the new second
+             * unless another thread already did.
+             */
+            final long started = now << 32;
+            long seen = states.get(slot);
+            while ((seen >>> 32) < now) {
+                if (states.compareAndSet(slot, seen, started | count)) {
+                    // without the fine times this thread has dropped above
+                    secondPassed(slot, seen - count);
+                    return started;
+                }
+                seen = states.get(slot);
+            }
+        }
+    }
+
+    /**
+     * Reports the Muids created during a second that has been replaced in the
+     * state word of a type
+     *
+     * @param slot
+     *            index of the state word of the type
+     * @param state
+     *            replaced state word
+     */
+    private static void secondPassed(final int slot, final long state) {
+        final long second = state >>> 32;
+        if (second != 0) {
+            MuidMetrics.recordIdsCreated(getType(slot), second,
+                    (int) Math.min(state & 0xFFFFFFFFL,
+                            UidConverter.getMaximumMuidID() + 1));
+        }
+    }
+
+    /**
+     * Blocks the calling thread until the time source has passed the given
+     * second
+     *
+     * @param second
+     *            unix time in seconds to wait for to pass
+     */
+    private void awaitNextSecond(final long second) {
+        while (timeSource.currentSecond() <= second) {
+            LockSupport.parkNanos(PARK_MILLIS * 1000000L);
+        }
+    }
+
+    /**
+     * @param type
+     *            raw identifier of a type
+     * @return index of the state word of the type
+     */
+    private static int getSlot(final short type) {
+        return (type & 511) * SLOT_STRIDE;
+    }
+
+    /**
+     * @param slot
+     *            index of the state word of a type
+     * @return raw identifier of the type
+     */
+    private static short getType(final int slot) {
+        return (short) (slot / SLOT_STRIDE);
+    }
+
+}
@@ -0,0 +1,154 @@
+package de.metalcon.domain;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * bounded pool of canonical Muid instances<br>
+ * <br>
+ * The pool is a direct mapped cache: every Muid value has exactly one slot,
+ * chosen by a Fibonacci hash of the value, so the pool never grows. A free
+ * slot is taken by the first Muid put into it. An occupied slot is only taken
+ * over by a Muid that misses it twice in a row: a hit of the occupying Muid in
+ * between gives it a second chance. A single cold Muid thus never evicts a
+ * hot one, while a Muid that became hot replaces one that is not used any
+ * more.<br>
+ * Slots are read and written without locking: Muids are immutable, so a
+ * racing reader sees either the old or the new instance. Two instances with
+ * the same value may thus exist but the pool never returns a Muid with a
+ * wrong value. Races on the admission only change which Muid is pooled.
+ */
+public class MuidPool {
+
+    /**
+     * multiplier of the Fibonacci hash (2^64 divided by the golden ratio)
+     */
+    private static final long GOLDEN_RATIO = 0x9E3779B97F4A7C15L;
+
+    /**
+     * canonical instances
+     */
+    private final Muid[] slots;
+
+    /**
+     * value of the Muid that missed the occupied slot last, 0 for none
+     */
+    private final long[] candidates;
+
+    /**
+     * shift turning the 64 bit hash into a slot index
+     */
+    private final int shift;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * create a new empty pool
+     * 
+     * @param capacity
+     *            maximum number of pooled Muids, rounded up to the next power
+     *            of two
+     */
+    public MuidPool(
+            final int capacity) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException(
+                    "Pool capacity must be in [1, 2^30]: " + capacity);
+        }
+        final int bits = 32 - Integer.numberOfLeadingZeros(capacity - 1);
+        slots = new Muid[1 << bits];
+        candidates = new long[1 << bits];
+        shift = 64 - bits;
+    }
+
+    /**
+     * Returns the pooled Muid with the given value
+     * 
+     * @param id
+     *            value of the Muid
+     * @return The pooled Muid or null if it is not pooled
+     */
+    public Muid get(final long id) {
+        final int slot = slotOf(id);
+        final Muid muid = slots[slot];
+        if (muid != null && muid.value == id) {
+            hits.increment();
+            if (candidates[slot] != 0) {
+                // second chance for the occupying Muid
+                candidates[slot] = 0;
+            }
+            return muid;
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Adds a Muid to the pool if its slot is free or if it has been put into
+     * its slot before without a hit of the occupying Muid in between
+     * 
+     * @param muid
+     *            Muid to be pooled
+     */
+    public void put(final Muid muid) {
+        final int slot = slotOf(muid.value);
+        final Muid occupant = slots[slot];
+        if (occupant == null || candidates[slot] == muid.value) {
+            slots[slot] = muid;
+            candidates[slot] = 0;
+        } else if (occupant.value != muid.value) {
+            candidates[slot] = muid.value;
+        }
+    }
+
+    /**
+     * @return maximum number of pooled Muids
+     */
+    public int getCapacity() {
+        return slots.length;
+    }
+
+    /**
+     * @return number of lookups that found their Muid in the pool
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return number of lookups that did not find their Muid in the pool
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return share of the lookups that found their Muid in the pool
+     */
+    public double getHitRatio() {
+        final long hitCount = hits.sum();
+        final long total = hitCount + misses.sum();
+        return total == 0 ? 0 : hitCount / (double) total;
+    }
+
+    /**
+     * removes all Muids from the pool and resets the statistics
+     */
+    public void clear() {
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = null;
+            candidates[i] = 0;
+        }
+        hits.reset();
+        misses.reset();
+    }
+
+    private int slotOf(final long id) {
+        /*
+         * A single slot needs a shift by 64 which Java takes as a shift by 0,
+         * the mask then maps every hash to slot 0
+         */
+        return (int) ((id * GOLDEN_RATIO) >>> shift) & (slots.length - 1);
+    }
+}
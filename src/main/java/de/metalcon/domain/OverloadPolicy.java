@@ -0,0 +1,33 @@
+package de.metalcon.domain;
+
+/**
+ * enumeration of the reactions of a MuidGenerator to an exhausted fine time
+ * space (more than 0xFFFF+1 Muids of a type created during one second)<br>
+ * <br>
+ * <ul>
+ * <li>fail</li>
+ * <li>wait</li>
+ * <li>borrow</li>
+ * </ul>
+ */
+public enum OverloadPolicy {
+
+    /**
+     * throw a ServiceOverloadedException and leave the retry to the caller
+     */
+    FAIL,
+
+    /**
+     * park the calling thread until the next second has begun
+     */
+    WAIT,
+
+    /**
+     * create the Muid within a future second. The number of seconds the
+     * generator may run ahead of the clock is bounded; when the bound is
+     * reached the calling thread waits as with WAIT. Once the clock catches up
+     * Muid creation continues within the borrowed seconds.
+     */
+    BORROW;
+
+}
@@ -8,18 +8,32 @@ import de.metalcon.exceptions.MetalconRuntimeException;
 
 /**
  * unique identifier for anything. It stores a type (Uidtype) and as sourceID
- * (the node which created this ID)
+ * (the node which created this ID). Uids are ordered by their raw value which
+ * is the order MuidArray.sort() produces.
  */
-public class Uid implements Serializable {
+public class Uid implements Serializable, Comparable<Uid> {
 	private static final long serialVersionUID = 4896224060197683465L;
 
 	protected static byte sourceID = 0;
 
+	/**
+	 * Should the alphanumeric form be kept after the first call of
+	 * toString()? Disable with -Dmuid.cacheStrings=false to save the memory of
+	 * the cached strings.
+	 */
+	private static final boolean CACHE_STRINGS = Boolean.parseBoolean(System
+			.getProperty("muid.cacheStrings", "true"));
+
 	/**
 	 * unique identifier
 	 */
 	protected final long value;
 
+	/**
+	 * alphanumeric form of the value, created on the first call of toString()
+	 */
+	private transient String string;
+
 	/**
 	 * Creates a new Muid or UrlID object with the given long as value
 	 * 
@@ -85,6 +99,14 @@ public class Uid implements Serializable {
 		return UidType.parseShort(getTypeValue());
 	}
 
+	/**
+	 * @return identifier of this Uid's type, including types registered at
+	 *         the UidTypeRegistry which have no UidType constant
+	 */
+	public String getTypeIdentifier() {
+		return UidTypeRegistry.getIdentifier(getTypeValue());
+	}
+
 	/**
 	 * Returns the source that generated the given MUID
 	 * 
@@ -98,7 +120,18 @@ public class Uid implements Serializable {
 
 	@Override
 	public String toString() {
-		return UidConverter.serialize(value);
+		/*
+		 * Racy single check: concurrent callers may serialize the value twice
+		 * but Strings are immutable so any of them may be kept
+		 */
+		String s = string;
+		if (s == null) {
+			s = UidConverter.serialize(value);
+			if (CACHE_STRINGS) {
+				string = s;
+			}
+		}
+		return s;
 	}
 
 	@Override
@@ -113,6 +146,11 @@ public class Uid implements Serializable {
 		return value == o.value;
 	}
 
+	@Override
+	public int compareTo(final Uid other) {
+		return Long.compare(value, other.value);
+	}
+
 	@Override
 	public int hashCode() {
 		int hash = 9823;
@@ -1,7 +1,5 @@
 package de.metalcon.domain;
 
-import java.util.TreeMap;
-
 import de.metalcon.domain.helper.UidConverter;
 import de.metalcon.domain.helper.UnknownMuidException;
 
@@ -102,21 +100,6 @@ public enum UidType {
      */
     IMAGE("image", (short) 13);
 
-    /**
-     * Map to map identy type names (strings) to enums
-     */
-    static TreeMap<String, UidType> allTypesByString =
-            new TreeMap<String, UidType>();
-
-    /**
-     * Fill allTypesByString
-     */
-    static {
-        for (UidType type : UidType.values()) {
-            allTypesByString.put(type.getIdentifier(), type);
-        }
-    }
-
     /**
      * identifier of the Muid type
      */
@@ -159,6 +142,57 @@ public enum UidType {
         return identifier;
     }
 
+    /**
+     * all types indexed by their raw identifier
+     */
+    private static final UidType[] TYPES_BY_RAW_VALUE;
+
+    /**
+     * all types indexed by the perfect hash of their identifier
+     */
+    private static final UidType[] TYPES_BY_IDENTIFIER;
+
+    /**
+     * stringHash(identifier) & IDENTIFIER_MASK is unique for every type
+     */
+    private static final int IDENTIFIER_MASK;
+
+    /**
+     * Fill the lookup tables
+     */
+    static {
+        UidType[] types = values();
+        TYPES_BY_RAW_VALUE = new UidType[types.length];
+        for (UidType type : types) {
+            if (type.rawValue != type.ordinal()) {
+                throw new ExceptionInInitializerError(
+                        "UidTypes must be sorted by their raw identifier: "
+                                + type);
+            }
+            TYPES_BY_RAW_VALUE[type.rawValue] = type;
+        }
+
+        /*
+         * Find the smallest table without collisions
+         */
+        int size = Integer.highestOneBit(types.length) << 1;
+        UidType[] table;
+        search: while (true) {
+            table = new UidType[size];
+            for (UidType type : types) {
+                int slot = stringHash(type.identifier) & (size - 1);
+                if (table[slot] != null) {
+                    size <<= 1;
+                    continue search;
+                }
+                table[slot] = type;
+            }
+            break;
+        }
+        TYPES_BY_IDENTIFIER = table;
+        IDENTIFIER_MASK = size - 1;
+    }
+
     /**
      * 
      * @param identifier
@@ -167,7 +201,24 @@ public enum UidType {
      *         <b>null</b> if no Muid type has such identifier
      */
     public static UidType parseString(final String identifier) {
-        return (allTypesByString.get(identifier));
+        if (identifier == null) {
+            return null;
+        }
+        UidType type =
+                TYPES_BY_IDENTIFIER[stringHash(identifier) & IDENTIFIER_MASK];
+        if (type != null && type.identifier.equals(identifier)) {
+            return type;
+        }
+        return null;
+    }
+
+    /**
+     * @return hash of a type identifier spreading String.hashCode over the
+     *         lower bits
+     */
+    private static int stringHash(final String identifier) {
+        int hash = identifier.hashCode();
+        return hash ^ (hash >>> 7) ^ (hash >>> 16);
     }
 
     /**
@@ -183,10 +234,10 @@ public enum UidType {
      */
     public static UidType parseShort(final short identifier)
             throws UnknownMuidException {
-        if (identifier > UidType.values().length) {
+        if (identifier < 0 || identifier >= TYPES_BY_RAW_VALUE.length) {
             throw new UnknownMuidException(identifier);
         }
-        return UidType.values()[identifier];
+        return TYPES_BY_RAW_VALUE[identifier];
     }
 
     /**
@@ -199,11 +250,7 @@ public enum UidType {
      *             Thrown if the given ID is invalid
      */
     public static UidType parseId(final long ID) throws UnknownMuidException {
-        short identifier = UidConverter.getType(ID);
-        if (identifier > UidType.values().length) {
-            throw new UnknownMuidException(identifier);
-        }
-        return UidType.values()[identifier];
+        return parseShort(UidConverter.getType(ID));
     }
 
     /**
@@ -211,7 +258,7 @@ public enum UidType {
      * @return the largest muid type value allowed
      */
     public static short getLargestAllowedType() {
-        return (short) UidType.values().length;
+        return (short) TYPES_BY_RAW_VALUE.length;
     }
 
 }
@@ -0,0 +1,17 @@
+package de.metalcon.domain;
+
+import java.util.Map;
+
+/**
+ * service providing additional Uid types to the UidTypeRegistry<br>
+ * Implementations are found by the java.util.ServiceLoader: list them in
+ * META-INF/services/de.metalcon.domain.UidTypeProvider.
+ */
+public interface UidTypeProvider {
+
+    /**
+     * @return additional types: identifier mapped to raw identifier
+     */
+    Map<String, Short> getUidTypes();
+
+}
@@ -0,0 +1,199 @@
+package de.metalcon.domain;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.ServiceLoader;
+
+import de.metalcon.exceptions.MetalconRuntimeException;
+
+/**
+ * registry of all Uid types known to this node<br>
+ * <br>
+ * The UidType constants are built in. Additional types can be registered at
+ * startup without changing the enum:
+ * <ul>
+ * <li>by the system property muid.types, e.g.
+ * -Dmuid.types=festival:100,label:101</li>
+ * <li>by UidTypeProvider services found by the java.util.ServiceLoader</li>
+ * <li>by calling register(String, short)</li>
+ * </ul>
+ * Types are stored in an array indexed by their raw identifier so checking
+ * whether a type is known is a single array read. The array is replaced on
+ * registration (copy on write) so lookups never lock.
+ */
+public final class UidTypeRegistry {
+
+    /**
+     * number of raw identifiers the 9 type bits of a Uid can hold
+     */
+    public static final int MAXIMUM_TYPE_COUNT = 1 << 9;
+
+    /**
+     * identifier of every known type indexed by its raw identifier, null for
+     * unknown types
+     */
+    private static volatile String[] identifiers =
+            new String[MAXIMUM_TYPE_COUNT];
+
+    /**
+     * raw identifier of every known type by its identifier
+     */
+    private static volatile Map<String, Short> rawIdentifiers =
+            new HashMap<String, Short>();
+
+    /**
+     * number of known types, one more than the largest raw identifier
+     */
+    private static volatile short largestType = 0;
+
+    static {
+        registerDefaults();
+    }
+
+    private UidTypeRegistry() {
+    }
+
+    /**
+     * registers the built in types, the types of muid.types and of the
+     * UidTypeProvider services
+     */
+    private static void registerDefaults() {
+        for (UidType type : UidType.values()) {
+            register(type.getIdentifier(), type.getRawIdentifier());
+        }
+
+        String definitions = System.getProperty("muid.types");
+        if (definitions != null) {
+            registerAll(definitions);
+        }
+
+        for (UidTypeProvider provider : ServiceLoader
+                .load(UidTypeProvider.class)) {
+            for (Map.Entry<String, Short> type : provider.getUidTypes()
+                    .entrySet()) {
+                register(type.getKey(), type.getValue());
+            }
+        }
+    }
+
+    /**
+     * Forgets all types registered by register(String, short) after startup,
+     * so tests registering types do not leak them into other tests
+     */
+    static synchronized void reset() {
+        identifiers = new String[MAXIMUM_TYPE_COUNT];
+        rawIdentifiers = new HashMap<String, Short>();
+        largestType = 0;
+        registerDefaults();
+    }
+
+    /**
+     * Registers an additional type
+     * 
+     * @param identifier
+     *            identifier of the type
+     * @param rawIdentifier
+     *            raw identifier of the type stored in Uids
+     * @throws MetalconRuntimeException
+     *             if the raw identifier is out of range or one of the
+     *             identifiers is already used by another type
+     */
+    public static synchronized void register(
+            final String identifier,
+            final short rawIdentifier) {
+        if (rawIdentifier < 0 || rawIdentifier >= MAXIMUM_TYPE_COUNT) {
+            throw new MetalconRuntimeException(
+                    "Muid Type may not be larger or equal to "
+                            + MAXIMUM_TYPE_COUNT);
+        }
+        final String known = identifiers[rawIdentifier];
+        final Short knownRaw = rawIdentifiers.get(identifier);
+        if (identifier.equals(known) && knownRaw != null
+                && knownRaw == rawIdentifier) {
+            // registered twice with the same definition
+            return;
+        }
+        if (known != null || knownRaw != null) {
+            throw new MetalconRuntimeException("Uid type " + identifier + " ("
+                    + rawIdentifier + ") collides with a registered type");
+        }
+
+        final String[] updatedIdentifiers =
+                Arrays.copyOf(identifiers, identifiers.length);
+        updatedIdentifiers[rawIdentifier] = identifier;
+        final Map<String, Short> updatedRawIdentifiers =
+                new HashMap<String, Short>(rawIdentifiers);
+        updatedRawIdentifiers.put(identifier, rawIdentifier);
+
+        identifiers = updatedIdentifiers;
+        rawIdentifiers = updatedRawIdentifiers;
+        if (rawIdentifier >= largestType) {
+            largestType = (short) (rawIdentifier + 1);
+        }
+    }
+
+    /**
+     * Registers additional types given in the format
+     * identifier:rawIdentifier[,identifier:rawIdentifier]*
+     * 
+     * @param definitions
+     *            types to be registered
+     */
+    public static void registerAll(final String definitions) {
+        for (String definition : definitions.split(",")) {
+            definition = definition.trim();
+            if (definition.isEmpty()) {
+                continue;
+            }
+            final int separator = definition.indexOf(':');
+            if (separator < 1) {
+                throw new MetalconRuntimeException(
+                        "Uid type definition must be identifier:rawIdentifier: "
+                                + definition);
+            }
+            register(definition.substring(0, separator).trim(),
+                    Short.parseShort(definition.substring(separator + 1)
+                            .trim()));
+        }
+    }
+
+    /**
+     * @param rawIdentifier
+     *            raw identifier of a type
+     * @return true if the type is known
+     */
+    public static boolean isRegistered(final short rawIdentifier) {
+        return rawIdentifier >= 0 && rawIdentifier < MAXIMUM_TYPE_COUNT
+                && identifiers[rawIdentifier] != null;
+    }
+
+    /**
+     * @param rawIdentifier
+     *            raw identifier of a type
+     * @return identifier of the type or null if the type is not known
+     */
+    public static String getIdentifier(final short rawIdentifier) {
+        if (rawIdentifier < 0 || rawIdentifier >= MAXIMUM_TYPE_COUNT) {
+            return null;
+        }
+        return identifiers[rawIdentifier];
+    }
+
+    /**
+     * @param identifier
+     *            identifier of a type
+     * @return raw identifier of the type or -1 if the type is not known
+     */
+    public static short getRawIdentifier(final String identifier) {
+        final Short rawIdentifier = rawIdentifiers.get(identifier);
+        return rawIdentifier == null ? -1 : rawIdentifier;
+    }
+
+    /**
+     * @return one more than the largest raw identifier of all known types
+     */
+    public static short getLargestType() {
+        return largestType;
+    }
+}
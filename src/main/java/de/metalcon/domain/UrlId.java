@@ -74,6 +74,14 @@ public class UrlId extends Uid {
 		return UidConverter.getDomainID(getValue());
 	}
 
+	/**
+	 * @return The domain of this URL or null if its domainID has been derived
+	 *         from the hash of the domain
+	 */
+	public String getDomain() {
+		return UrlStore.getDomainOfUrlID(getValue());
+	}
+
 	/**
 	 * @return The ID identifying the file of all files within the domain of
 	 *         this URL
@@ -0,0 +1,479 @@
+package de.metalcon.domain.collection;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import de.metalcon.domain.UidType;
+import de.metalcon.domain.helper.UidConverter;
+
+/**
+ * growable array of Muid (or UrlId) values backed by a LongBuffer<br>
+ * <br>
+ * The buffer is either a heap buffer or a direct buffer outside of the Java
+ * heap, so tens of millions of Muids neither need boxed objects nor burden the
+ * garbage collector. The array can be sorted by a parallel LSD radix sort
+ * either by raw value (the order of Uid.compareTo) or by timestamp (the order
+ * of Muid.TIMESTAMP_ORDER, stable). The sort needs a second buffer of the
+ * same capacity which is kept for the next sort, so repeated sorts of a
+ * direct array do not allocate direct memory again. releaseSortBuffer() drops
+ * it. This class is not thread-safe.
+ */
+public class MuidArray {
+
+    /**
+     * bits sorted per radix pass
+     */
+    private static final int DIGIT_BITS = 8;
+
+    private static final int RADIX = 1 << DIGIT_BITS;
+
+    /**
+     * minimum number of values a thread sorts in a radix pass
+     */
+    private static final int MIN_CHUNK_SIZE = 1 << 16;
+
+    /**
+     * lowest bit of the timestamp within a Muid
+     */
+    private static final int TIMESTAMP_SHIFT = 16;
+
+    private final boolean direct;
+
+    private LongBuffer values;
+
+    /**
+     * buffer the radix sort scatters into, null until the first sort
+     */
+    private LongBuffer sortBuffer;
+
+    private int size;
+
+    /**
+     * create a new empty array on the Java heap
+     *
+     * @param capacity
+     *            number of values the array can hold without growing
+     * @return new empty array
+     */
+    public static MuidArray allocate(final int capacity) {
+        return new MuidArray(capacity, false);
+    }
+
+    /**
+     * create a new empty array outside of the Java heap
+     *
+     * @param capacity
+     *            number of values the array can hold without growing
+     * @return new empty array
+     */
+    public static MuidArray allocateDirect(final int capacity) {
+        return new MuidArray(capacity, true);
+    }
+
+    private MuidArray(
+            final int capacity,
+            final boolean direct) {
+        this.direct = direct;
+        values = allocateBuffer(capacity);
+    }
+
+    /**
+     * @return true if the values are stored outside of the Java heap
+     */
+    public boolean isDirect() {
+        return direct;
+    }
+
+    /**
+     * @return number of values
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return number of values the array can hold without growing
+     */
+    public int capacity() {
+        return values.capacity();
+    }
+
+    /**
+     * @param value
+     *            value to be appended
+     */
+    public void add(final long value) {
+        if (size == values.capacity()) {
+            grow(size + 1);
+        }
+        values.put(size++, value);
+    }
+
+    /**
+     * @param src
+     *            values to be appended
+     */
+    public void addAll(final long[] src) {
+        if (values.capacity() - size < src.length) {
+            grow(size + src.length);
+        }
+        for (final long value : src) {
+            values.put(size++, value);
+        }
+    }
+
+    /**
+     * @param index
+     *            index of the value
+     * @return value at the index
+     */
+    public long get(final int index) {
+        checkIndex(index);
+        return values.get(index);
+    }
+
+    /**
+     * @param index
+     *            index of the value
+     * @param value
+     *            value to be stored at the index
+     */
+    public void set(final int index, final long value) {
+        checkIndex(index);
+        values.put(index, value);
+    }
+
+    /**
+     * removes all values
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * @return copy of all values
+     */
+    public long[] toArray() {
+        final long[] copy = new long[size];
+        for (int i = 0; i < size; i++) {
+            copy[i] = values.get(i);
+        }
+        return copy;
+    }
+
+    /**
+     * Sorts the values ascending by raw value, the order of Uid.compareTo
+     */
+    public void sort() {
+        radixSort(0, 63);
+    }
+
+    /**
+     * Sorts the values ascending by timestamp. Values with equal timestamps
+     * keep their relative order, like sorting with Muid.TIMESTAMP_ORDER.
+     */
+    public void sortByTimestamp() {
+        radixSort(TIMESTAMP_SHIFT, TIMESTAMP_SHIFT + 32);
+    }
+
+    /**
+     * Drops the buffer kept for sorting. The memory of a direct buffer is
+     * returned as soon as it is garbage collected.
+     */
+    public void releaseSortBuffer() {
+        sortBuffer = null;
+    }
+
+    /**
+     * @return true if a buffer for sorting is kept
+     */
+    boolean hasSortBuffer() {
+        return sortBuffer != null;
+    }
+
+    /**
+     * Searches a value in an array sorted by sort()
+     *
+     * @param value
+     *            value to be searched for
+     * @return index of the value if it is contained, otherwise (-(insertion
+     *         point) - 1)
+     */
+    public int binarySearch(final long value) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final long midValue = values.get(mid);
+            if (midValue < value) {
+                low = mid + 1;
+            } else if (midValue > value) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * Searches a timestamp in an array sorted by sortByTimestamp()
+     *
+     * @param timestamp
+     *            timestamp to be searched for
+     * @return index of the first value created at or after the timestamp (size
+     *         if there is none)
+     */
+    public int lowerBoundOfTimestamp(final int timestamp) {
+        final long key = timestamp & 0xFFFFFFFFL;
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if ((UidConverter.getTimestamp(values.get(mid)) & 0xFFFFFFFFL) < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @param type
+     *            type of the values to be kept
+     * @return new array (of the same kind) with all values of the given type
+     *         in the same order
+     */
+    public MuidArray filterByType(final UidType type) {
+        final short rawType = type.getRawIdentifier();
+        final MuidArray filtered = new MuidArray(0, direct);
+        for (int i = 0; i < size; i++) {
+            final long value = values.get(i);
+            if (UidConverter.getType(value) == rawType) {
+                filtered.add(value);
+            }
+        }
+        return filtered;
+    }
+
+    /**
+     * @param sourceID
+     *            source of the values to be kept
+     * @return new array (of the same kind) with all values created by the
+     *         given source in the same order
+     */
+    public MuidArray filterBySource(final byte sourceID) {
+        final MuidArray filtered = new MuidArray(0, direct);
+        for (int i = 0; i < size; i++) {
+            final long value = values.get(i);
+            if (UidConverter.getSource(value) == sourceID) {
+                filtered.add(value);
+            }
+        }
+        return filtered;
+    }
+
+    /**
+     * Sorts the values by the given bits with one stable counting pass per
+     * digit, least significant digit first. Each pass counts and scatters
+     * chunks of the array in parallel; passes in which all values share the
+     * same digit (e.g. the type bits of a single type timeline) are skipped.
+     *
+     * @param lowestBit
+     *            lowest bit of the sort key
+     * @param highestBit
+     *            bit above the sort key
+     */
+    private void radixSort(final int lowestBit, final int highestBit) {
+        if (size < 2) {
+            return;
+        }
+        final int chunks =
+                Math.max(1, Math.min(ForkJoinPool.getCommonPoolParallelism(),
+                        size / MIN_CHUNK_SIZE));
+        final int chunkSize = (size + chunks - 1) / chunks;
+        LongBuffer src = values;
+        LongBuffer dst = null;
+
+        for (int shift = lowestBit; shift < highestBit; shift += DIGIT_BITS) {
+            final int[][] counts = count(src, shift, chunks, chunkSize);
+            if (isTrivialPass(counts)) {
+                continue;
+            }
+            if (dst == null) {
+                if (sortBuffer == null
+                        || sortBuffer.capacity() != values.capacity()) {
+                    sortBuffer = null;
+                    sortBuffer = allocateBuffer(values.capacity());
+                }
+                dst = sortBuffer;
+            }
+
+            /*
+             * Turn the counts into start offsets: digit major, chunk minor so
+             * the sort is stable
+             */
+            int offset = 0;
+            for (int digit = 0; digit < RADIX; digit++) {
+                for (int chunk = 0; chunk < chunks; chunk++) {
+                    final int count = counts[chunk][digit];
+                    counts[chunk][digit] = offset;
+                    offset += count;
+                }
+            }
+            scatter(src, dst, shift, counts, chunkSize);
+
+            final LongBuffer swap = src;
+            src = dst;
+            dst = swap;
+        }
+        values = src;
+        if (dst != null) {
+            // keep the other buffer for the next sort
+            sortBuffer = dst;
+        }
+    }
+
+    /**
+     * counts the digits at the given shift per chunk
+     */
+    private int[][] count(
+            final LongBuffer src,
+            final int shift,
+            final int chunks,
+            final int chunkSize) {
+        final int[][] counts = new int[chunks][];
+        final List<Callable<int[]>> tasks = new ArrayList<Callable<int[]>>();
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            final int from = chunk * chunkSize;
+            final int to = Math.min(size, from + chunkSize);
+            tasks.add(new Callable<int[]>() {
+
+                @Override
+                public int[] call() {
+                    final int[] count = new int[RADIX];
+                    for (int i = from; i < to; i++) {
+                        count[(int) (src.get(i) >>> shift) & (RADIX - 1)]++;
+                    }
+                    return count;
+                }
+            });
+        }
+        final List<int[]> results = invokeAll(tasks);
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            counts[chunk] = results.get(chunk);
+        }
+        return counts;
+    }
+
+    /**
+     * moves the values of every chunk to the offsets of their digits
+     */
+    private void scatter(
+            final LongBuffer src,
+            final LongBuffer dst,
+            final int shift,
+            final int[][] offsets,
+            final int chunkSize) {
+        final List<Callable<int[]>> tasks = new ArrayList<Callable<int[]>>();
+        for (int chunk = 0; chunk < offsets.length; chunk++) {
+            final int from = chunk * chunkSize;
+            final int to = Math.min(size, from + chunkSize);
+            final int[] offset = offsets[chunk];
+            tasks.add(new Callable<int[]>() {
+
+                @Override
+                public int[] call() {
+                    for (int i = from; i < to; i++) {
+                        final long value = src.get(i);
+                        dst.put(offset[(int) (value >>> shift) & (RADIX - 1)]++,
+                                value);
+                    }
+                    return offset;
+                }
+            });
+        }
+        invokeAll(tasks);
+    }
+
+    /**
+     * @return true if all values share the same digit
+     */
+    private boolean isTrivialPass(final int[][] counts) {
+        for (int digit = 0; digit < RADIX; digit++) {
+            int total = 0;
+            for (final int[] count : counts) {
+                total += count[digit];
+            }
+            if (total != 0) {
+                return total == size;
+            }
+        }
+        return true;
+    }
+
+    private static <T> List<T> invokeAll(final List<Callable<T>> tasks) {
+        final List<T> results = new ArrayList<T>(tasks.size());
+        if (tasks.size() == 1) {
+            try {
+                results.add(tasks.get(0).call());
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            return results;
+        }
+        for (final Future<T> future : ForkJoinPool.commonPool().invokeAll(
+                tasks)) {
+            try {
+                results.add(future.get());
+            } catch (Exception e) {
+                throw new IllegalStateException("Radix sort failed", e);
+            }
+        }
+        return results;
+    }
+
+    private void grow(final int minCapacity) {
+        // would not fit the grown array anyway
+        sortBuffer = null;
+        final int capacity =
+                (int) Math.min(Integer.MAX_VALUE - 8, Math.max(minCapacity,
+                        values.capacity() + (values.capacity() >> 1) + 16L));
+        final LongBuffer grown = allocateBuffer(capacity);
+        for (int i = 0; i < size; i++) {
+            grown.put(i, values.get(i));
+        }
+        values = grown;
+    }
+
+    private LongBuffer allocateBuffer(final int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity may not be negative: "
+                    + capacity);
+        }
+        if (!direct) {
+            return LongBuffer.allocate(capacity);
+        }
+        if (capacity > Integer.MAX_VALUE / 8) {
+            throw new IllegalArgumentException(
+                    "Direct arrays are limited to " + Integer.MAX_VALUE / 8
+                            + " values");
+        }
+        return ByteBuffer.allocateDirect(capacity * 8)
+                .order(ByteOrder.nativeOrder()).asLongBuffer();
+    }
+
+    private void checkIndex(final int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: "
+                    + size);
+        }
+    }
+}
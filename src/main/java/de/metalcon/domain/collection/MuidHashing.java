@@ -0,0 +1,79 @@
+package de.metalcon.domain.collection;
+
+import de.metalcon.domain.helper.UidConverter;
+
+/**
+ * table layout shared by the open addressing Muid collections
+ */
+final class MuidHashing {
+
+    /**
+     * maximum share of occupied slots before a table is doubled
+     */
+    static final float LOAD_FACTOR = 0.7f;
+
+    /**
+     * largest table size: 2^30 slots
+     */
+    private static final int MAXIMUM_TABLE_SIZE = 1 << 30;
+
+    private MuidHashing() {
+    }
+
+    /**
+     * @param value
+     *            value to be looked up
+     * @param mask
+     *            table size - 1
+     * @return first slot to probe for the value
+     */
+    static int slotOf(final long value, final int mask) {
+        return (int) UidConverter.generateMixedHash(value) & mask;
+    }
+
+    /**
+     * @param expectedSize
+     *            number of values the table must hold without being resized
+     * @return smallest power of two table size for the expected size
+     */
+    static int tableSize(final int expectedSize) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException(
+                    "Expected size may not be negative: " + expectedSize);
+        }
+        final long minimum = (long) Math.ceil(expectedSize / LOAD_FACTOR) + 1;
+        if (minimum > MAXIMUM_TABLE_SIZE) {
+            throw new IllegalArgumentException("Expected size too large: "
+                    + expectedSize);
+        }
+        return Math.max(4, Integer.highestOneBit((int) minimum - 1) << 1);
+    }
+
+    /**
+     * @param tableSize
+     *            number of slots of a full table
+     * @return number of slots of the table replacing the full one
+     * @throws IllegalStateException
+     *             if the table can not grow anymore
+     */
+    static int grow(final int tableSize) {
+        if (tableSize == MAXIMUM_TABLE_SIZE) {
+            throw new IllegalStateException("Collection is full: "
+                    + (tableSize - 1) + " values");
+        }
+        return tableSize << 1;
+    }
+
+    /**
+     * @param tableSize
+     *            number of slots of a table
+     * @return number of values after which the table has to be doubled
+     */
+    static int resizeAt(final int tableSize) {
+        if (tableSize == MAXIMUM_TABLE_SIZE) {
+            // can not grow anymore: keep one slot free to end probe chains
+            return tableSize - 1;
+        }
+        return (int) (tableSize * LOAD_FACTOR);
+    }
+}
@@ -0,0 +1,344 @@
+package de.metalcon.domain.collection;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+import de.metalcon.domain.Uid;
+
+/**
+ * map from Muid (or UrlId) values stored as primitive longs to objects<br>
+ * <br>
+ * Keys and values are stored in two parallel arrays of an open addressing
+ * table with linear probing, indexed by UidConverter.generateMixedHash. There
+ * is neither a Muid nor an entry object per mapping. Removal shifts the
+ * following entries back so no tombstones are left. This class is not
+ * thread-safe.
+ *
+ * @param <V>
+ *            type of the values
+ */
+public class MuidMap<V> {
+
+    /**
+     * consumer of the mappings of a MuidMap
+     *
+     * @param <V>
+     *            type of the values
+     */
+    public interface EntryConsumer<V> {
+
+        /**
+         * @param key
+         *            Muid value
+         * @param value
+         *            value mapped to the key
+         */
+        void accept(long key, V value);
+    }
+
+    /**
+     * marks free slots. 0 is a valid key (EMPTY_BAND_MUID) and therefore
+     * stored in hasZero/zeroValue instead of the table.
+     */
+    private static final long FREE = 0;
+
+    private long[] keys;
+
+    private Object[] values;
+
+    /**
+     * keys.length - 1
+     */
+    private int mask;
+
+    /**
+     * number of mappings in the table (without 0)
+     */
+    private int assigned;
+
+    /**
+     * number of mappings the table may hold before it is resized
+     */
+    private int resizeAt;
+
+    /**
+     * is 0 mapped?
+     */
+    private boolean hasZero;
+
+    /**
+     * value mapped to 0
+     */
+    private V zeroValue;
+
+    /**
+     * create a new empty map
+     */
+    public MuidMap() {
+        this(16);
+    }
+
+    /**
+     * create a new empty map
+     *
+     * @param expectedSize
+     *            number of mappings the map can hold without being resized
+     */
+    public MuidMap(
+            final int expectedSize) {
+        allocate(MuidHashing.tableSize(expectedSize));
+    }
+
+    /**
+     * @param key
+     *            Muid value
+     * @param value
+     *            value to be mapped to the key
+     * @return value previously mapped to the key or null
+     */
+    @SuppressWarnings("unchecked")
+    public V put(final long key, final V value) {
+        if (key == FREE) {
+            final V previous = zeroValue;
+            hasZero = true;
+            zeroValue = value;
+            return previous;
+        }
+        int slot = MuidHashing.slotOf(key, mask);
+        long stored;
+        while ((stored = keys[slot]) != FREE) {
+            if (stored == key) {
+                final V previous = (V) values[slot];
+                values[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (assigned >= resizeAt) {
+            rehash(MuidHashing.grow(keys.length));
+            slot = freeSlot(key);
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        assigned++;
+        return null;
+    }
+
+    /**
+     * @param key
+     *            Muid
+     * @param value
+     *            value to be mapped to the Muid
+     * @return value previously mapped to the Muid or null
+     */
+    public V put(final Uid key, final V value) {
+        return put(key.getValue(), value);
+    }
+
+    /**
+     * @param key
+     *            Muid value
+     * @return value mapped to the key or null
+     */
+    @SuppressWarnings("unchecked")
+    public V get(final long key) {
+        if (key == FREE) {
+            return zeroValue;
+        }
+        int slot = MuidHashing.slotOf(key, mask);
+        long stored;
+        while ((stored = keys[slot]) != FREE) {
+            if (stored == key) {
+                return (V) values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * @param key
+     *            Muid
+     * @return value mapped to the Muid or null
+     */
+    public V get(final Uid key) {
+        return get(key.getValue());
+    }
+
+    /**
+     * @param key
+     *            Muid value
+     * @return true if a value is mapped to the key
+     */
+    public boolean containsKey(final long key) {
+        if (key == FREE) {
+            return hasZero;
+        }
+        int slot = MuidHashing.slotOf(key, mask);
+        long stored;
+        while ((stored = keys[slot]) != FREE) {
+            if (stored == key) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * @param key
+     *            Muid value
+     * @return value that has been mapped to the key or null
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(final long key) {
+        if (key == FREE) {
+            final V previous = zeroValue;
+            hasZero = false;
+            zeroValue = null;
+            return previous;
+        }
+        int slot = MuidHashing.slotOf(key, mask);
+        long stored;
+        while ((stored = keys[slot]) != FREE) {
+            if (stored == key) {
+                final V previous = (V) values[slot];
+                shiftBack(slot);
+                assigned--;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * @return number of mappings
+     */
+    public int size() {
+        return assigned + (hasZero ? 1 : 0);
+    }
+
+    /**
+     * @return true if the map contains no mappings
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * removes all mappings
+     */
+    public void clear() {
+        Arrays.fill(keys, FREE);
+        Arrays.fill(values, null);
+        assigned = 0;
+        hasZero = false;
+        zeroValue = null;
+    }
+
+    /**
+     * Passes every mapping to the consumer
+     *
+     * @param consumer
+     *            consumer of the mappings
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(final EntryConsumer<? super V> consumer) {
+        if (hasZero) {
+            consumer.accept(FREE, zeroValue);
+        }
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != FREE) {
+                consumer.accept(keys[slot], (V) values[slot]);
+            }
+        }
+    }
+
+    /**
+     * @return iterator over the keys that does not box them
+     */
+    public PrimitiveIterator.OfLong keyIterator() {
+        return new PrimitiveIterator.OfLong() {
+
+            private int slot = hasZero ? -1 : nextSlot(0);
+
+            private int nextSlot(int from) {
+                while (from < keys.length && keys[from] == FREE) {
+                    from++;
+                }
+                return from;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return slot < keys.length;
+            }
+
+            @Override
+            public long nextLong() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                final long key = slot < 0 ? FREE : keys[slot];
+                slot = nextSlot(slot + 1);
+                return key;
+            }
+        };
+    }
+
+    /**
+     * Removes the entry at the given slot and moves following entries of its
+     * probe chain back so lookups still find them
+     */
+    private void shiftBack(int slot) {
+        int next = slot;
+        while (true) {
+            next = (next + 1) & mask;
+            final long key = keys[next];
+            if (key == FREE) {
+                break;
+            }
+            final int home = MuidHashing.slotOf(key, mask);
+            if (((next - home) & mask) >= ((next - slot) & mask)) {
+                keys[slot] = key;
+                values[slot] = values[next];
+                slot = next;
+            }
+        }
+        keys[slot] = FREE;
+        values[slot] = null;
+    }
+
+    /**
+     * @return first free slot of the probe chain of a key not in the table
+     */
+    private int freeSlot(final long key) {
+        int slot = MuidHashing.slotOf(key, mask);
+        while (keys[slot] != FREE) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void allocate(final int tableSize) {
+        keys = new long[tableSize];
+        values = new Object[tableSize];
+        mask = tableSize - 1;
+        resizeAt = MuidHashing.resizeAt(tableSize);
+    }
+
+    private void rehash(final int tableSize) {
+        final long[] oldKeys = keys;
+        final Object[] oldValues = values;
+        allocate(tableSize);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE) {
+                final int slot = freeSlot(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package de.metalcon.domain.collection;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.function.LongConsumer;
+
+import de.metalcon.domain.Uid;
+
+/**
+ * set of Muid (or UrlId) values stored as primitive longs<br>
+ * <br>
+ * The values are stored in an open addressing table with linear probing,
+ * indexed by UidConverter.generateMixedHash. Neither the values nor their
+ * table entries are objects, so a set costs 8 to 16 bytes per value instead
+ * of a Muid and a HashMap node. Removal shifts the following entries back so
+ * no tombstones are left. This class is not thread-safe.
+ */
+public class MuidSet {
+
+    /**
+     * marks free slots. 0 is a valid value (EMPTY_BAND_MUID) and therefore
+     * stored in hasZero instead of the table.
+     */
+    private static final long FREE = 0;
+
+    private long[] keys;
+
+    /**
+     * keys.length - 1
+     */
+    private int mask;
+
+    /**
+     * number of values in the table (without 0)
+     */
+    private int assigned;
+
+    /**
+     * number of values the table may hold before it is resized
+     */
+    private int resizeAt;
+
+    /**
+     * is 0 in the set?
+     */
+    private boolean hasZero;
+
+    /**
+     * create a new empty set
+     */
+    public MuidSet() {
+        this(16);
+    }
+
+    /**
+     * create a new empty set
+     *
+     * @param expectedSize
+     *            number of values the set can hold without being resized
+     */
+    public MuidSet(
+            final int expectedSize) {
+        allocate(MuidHashing.tableSize(expectedSize));
+    }
+
+    /**
+     * @param value
+     *            value to be added
+     * @return true if the value has not been in the set yet
+     */
+    public boolean add(final long value) {
+        if (value == FREE) {
+            final boolean added = !hasZero;
+            hasZero = true;
+            return added;
+        }
+        int slot = MuidHashing.slotOf(value, mask);
+        long key;
+        while ((key = keys[slot]) != FREE) {
+            if (key == value) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (assigned >= resizeAt) {
+            rehash(MuidHashing.grow(keys.length));
+            slot = freeSlot(value);
+        }
+        keys[slot] = value;
+        assigned++;
+        return true;
+    }
+
+    /**
+     * @param uid
+     *            Muid to be added
+     * @return true if the Muid has not been in the set yet
+     */
+    public boolean add(final Uid uid) {
+        return add(uid.getValue());
+    }
+
+    /**
+     * @param value
+     *            value to be looked up
+     * @return true if the value is in the set
+     */
+    public boolean contains(final long value) {
+        if (value == FREE) {
+            return hasZero;
+        }
+        int slot = MuidHashing.slotOf(value, mask);
+        long key;
+        while ((key = keys[slot]) != FREE) {
+            if (key == value) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * @param uid
+     *            Muid to be looked up
+     * @return true if the Muid is in the set
+     */
+    public boolean contains(final Uid uid) {
+        return contains(uid.getValue());
+    }
+
+    /**
+     * @param value
+     *            value to be removed
+     * @return true if the value has been in the set
+     */
+    public boolean remove(final long value) {
+        if (value == FREE) {
+            final boolean removed = hasZero;
+            hasZero = false;
+            return removed;
+        }
+        int slot = MuidHashing.slotOf(value, mask);
+        long key;
+        while ((key = keys[slot]) != FREE) {
+            if (key == value) {
+                shiftBack(slot);
+                assigned--;
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * @return number of values in the set
+     */
+    public int size() {
+        return assigned + (hasZero ? 1 : 0);
+    }
+
+    /**
+     * @return true if the set contains no values
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * removes all values from the set
+     */
+    public void clear() {
+        Arrays.fill(keys, FREE);
+        assigned = 0;
+        hasZero = false;
+    }
+
+    /**
+     * Passes every value of the set to the consumer
+     *
+     * @param consumer
+     *            consumer of the values
+     */
+    public void forEach(final LongConsumer consumer) {
+        if (hasZero) {
+            consumer.accept(FREE);
+        }
+        for (final long key : keys) {
+            if (key != FREE) {
+                consumer.accept(key);
+            }
+        }
+    }
+
+    /**
+     * @return iterator over the values of the set that does not box them
+     */
+    public PrimitiveIterator.OfLong iterator() {
+        return new PrimitiveIterator.OfLong() {
+
+            private int slot = hasZero ? -1 : nextSlot(0);
+
+            private int nextSlot(int from) {
+                while (from < keys.length && keys[from] == FREE) {
+                    from++;
+                }
+                return from;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return slot < keys.length;
+            }
+
+            @Override
+            public long nextLong() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                final long value = slot < 0 ? FREE : keys[slot];
+                slot = nextSlot(slot + 1);
+                return value;
+            }
+        };
+    }
+
+    /**
+     * @return all values of the set in table order
+     */
+    public long[] toArray() {
+        final long[] values = new long[size()];
+        int i = 0;
+        if (hasZero) {
+            values[i++] = FREE;
+        }
+        for (final long key : keys) {
+            if (key != FREE) {
+                values[i++] = key;
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Removes the entry at the given slot and moves following entries of its
+     * probe chain back so lookups still find them
+     */
+    private void shiftBack(int slot) {
+        int next = slot;
+        while (true) {
+            next = (next + 1) & mask;
+            final long key = keys[next];
+            if (key == FREE) {
+                break;
+            }
+            final int home = MuidHashing.slotOf(key, mask);
+            if (((next - home) & mask) >= ((next - slot) & mask)) {
+                keys[slot] = key;
+                slot = next;
+            }
+        }
+        keys[slot] = FREE;
+    }
+
+    /**
+     * @return first free slot of the probe chain of a value not in the table
+     */
+    private int freeSlot(final long value) {
+        int slot = MuidHashing.slotOf(value, mask);
+        while (keys[slot] != FREE) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void allocate(final int tableSize) {
+        keys = new long[tableSize];
+        mask = tableSize - 1;
+        resizeAt = MuidHashing.resizeAt(tableSize);
+    }
+
+    private void rehash(final int tableSize) {
+        final long[] oldKeys = keys;
+        allocate(tableSize);
+        for (final long key : oldKeys) {
+            if (key != FREE) {
+                keys[freeSlot(key)] = key;
+            }
+        }
+    }
+}
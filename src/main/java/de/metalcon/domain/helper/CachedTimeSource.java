@@ -0,0 +1,87 @@
+package de.metalcon.domain.helper;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * time source returning a cached second that is refreshed by a background
+ * ticker thread. Reading the time is a single volatile read; the returned
+ * second may lag behind the underlying time source by one tick period.
+ */
+public class CachedTimeSource implements TimeSource {
+
+    /**
+     * time source the cached second is read from
+     */
+    private final TimeSource source;
+
+    /**
+     * ticker refreshing the cached second
+     */
+    private final ScheduledExecutorService ticker;
+
+    /**
+     * cached second
+     */
+    private volatile long second;
+
+    /**
+     * create a new cached time source and start its ticker thread
+     * 
+     * @param source
+     *            time source the cached second is read from
+     * @param tickMillis
+     *            milliseconds between two refreshes of the cached second
+     */
+    public CachedTimeSource(
+            final TimeSource source,
+            final long tickMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException(
+                    "Tick period must be positive: " + tickMillis);
+        }
+        this.source = source;
+        second = source.currentSecond();
+
+        ticker =
+                Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+                    @Override
+                    public Thread newThread(final Runnable r) {
+                        Thread thread = new Thread(r, "muid-clock-ticker");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        ticker.scheduleAtFixedRate(new Runnable() {
+
+            @Override
+            public void run() {
+                tick();
+            }
+        }, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * refreshes the cached second
+     */
+    public void tick() {
+        second = source.currentSecond();
+    }
+
+    @Override
+    public long currentSecond() {
+        return second;
+    }
+
+    /**
+     * stops the ticker thread. The cached second will not change anymore
+     * unless tick() is called.
+     */
+    public void stop() {
+        ticker.shutdownNow();
+    }
+
+}
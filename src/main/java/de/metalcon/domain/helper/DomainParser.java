@@ -0,0 +1,473 @@
+package de.metalcon.domain.helper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * extracts the host and the registrable domain of a URL without
+ * java.net.URL<br>
+ * <br>
+ * getHost scans the URL once: scheme, "//", userinfo (up to the last '@' of
+ * the authority), host and port, where the host may be an IPv6 literal in
+ * brackets. The only allocation is the host itself.<br>
+ * getRegistrableDomain applies the public suffix rules (normal, wildcard and
+ * exception rules as in publicsuffix.org's list): the registrable domain is
+ * the public suffix plus one label, e.g. "metalcon.co.uk" for
+ * "www.metalcon.co.uk". The rules are compiled into an open addressing table
+ * that is probed with the character ranges of the host, so no substrings are
+ * created while matching and every character is hashed once. A built-in list
+ * covers the most common multi-label suffixes; the complete list can be loaded
+ * with -Dmuid.publicSuffixList=/path/to/public_suffix_list.dat.
+ */
+public final class DomainParser {
+
+    /**
+     * path of a public suffix list to be used instead of DEFAULT_RULES
+     */
+    public static final String PUBLIC_SUFFIX_LIST_PROPERTY =
+            "muid.publicSuffixList";
+
+    /**
+     * protocols java.net.URL accepts by default
+     */
+    private static final String[] PROTOCOLS = {
+        "http", "https", "ftp", "file", "jar", "mailto"
+    };
+
+    /**
+     * rules used without a public suffix list file: single-label top level
+     * domains are covered by the default rule "*"
+     */
+    private static final String[] DEFAULT_RULES = {
+        // United Kingdom
+        "co.uk", "org.uk", "me.uk", "ltd.uk", "plc.uk", "net.uk", "ac.uk",
+        "gov.uk", "sch.uk", "nhs.uk", "police.uk",
+        // Australia
+        "com.au", "net.au", "org.au", "edu.au", "gov.au", "asn.au", "id.au",
+        // New Zealand
+        "co.nz", "net.nz", "org.nz", "ac.nz", "govt.nz", "school.nz",
+        "geek.nz", "gen.nz", "kiwi.nz",
+        // Japan
+        "co.jp", "ne.jp", "or.jp", "ac.jp", "ad.jp", "ed.jp", "go.jp",
+        "gr.jp", "lg.jp",
+        // South Africa
+        "co.za", "org.za", "net.za", "web.za", "gov.za", "ac.za",
+        // Brazil
+        "com.br", "net.br", "org.br", "art.br", "blog.br", "edu.br",
+        "gov.br", "mus.br",
+        // China, Hong Kong, Taiwan
+        "com.cn", "net.cn", "org.cn", "edu.cn", "gov.cn", "com.hk",
+        "org.hk", "net.hk", "edu.hk", "com.tw", "org.tw", "net.tw",
+        "edu.tw",
+        // India
+        "co.in", "net.in", "org.in", "firm.in", "gen.in", "ind.in", "ac.in",
+        "edu.in", "gov.in",
+        // Latin America
+        "com.mx", "org.mx", "net.mx", "edu.mx", "gob.mx", "com.ar",
+        "org.ar", "net.ar", "com.co", "org.co", "net.co", "com.pe",
+        "org.pe", "com.ve", "com.uy", "com.ec", "com.bo", "com.py",
+        "cl",
+        // Asia
+        "co.kr", "or.kr", "ne.kr", "ac.kr", "go.kr", "com.sg", "org.sg",
+        "net.sg", "edu.sg", "com.my", "org.my", "net.my", "co.id", "or.id",
+        "web.id", "ac.id", "co.th", "or.th", "in.th", "ac.th", "com.vn",
+        "net.vn", "org.vn", "com.ph", "org.ph", "net.ph", "com.pk",
+        "org.pk", "com.tr", "org.tr", "net.tr", "gen.tr", "co.il",
+        "org.il", "net.il", "ac.il",
+        // Europe
+        "com.pl", "net.pl", "org.pl", "co.at", "or.at", "ac.at", "gv.at",
+        "com.gr", "org.gr", "com.pt", "org.pt", "com.es", "org.es",
+        "nom.es", "com.ua", "org.ua", "net.ua", "co.hu", "com.ru", "org.ru",
+        "net.ru", "com.ro", "org.ro", "co.no", "com.cy", "com.mt",
+        // Africa, Middle East
+        "com.eg", "com.ng", "org.ng", "co.ke", "or.ke", "com.sa", "com.ae",
+        "co.ma", "co.tz", "co.ug",
+        // wildcard and exception rules
+        "*.ck", "!www.ck", "*.bd", "*.er", "*.fk", "*.jm", "*.kh", "*.mm",
+        "*.np", "*.pg",
+        // generic second level domains of other top level domains
+        "gov.us", "edu.us", "co.us"
+    };
+
+    /**
+     * rule "suffix"
+     */
+    private static final byte NORMAL = 1;
+
+    /**
+     * rule "*.suffix"
+     */
+    private static final byte WILDCARD = 2;
+
+    /**
+     * rule "!suffix"
+     */
+    private static final byte EXCEPTION = 4;
+
+    /**
+     * suffixes of all rules in lower case, null for free slots
+     */
+    private static final String[] suffixes;
+
+    /**
+     * String.hashCode() of every suffix
+     */
+    private static final int[] hashes;
+
+    /**
+     * rule kinds per suffix
+     */
+    private static final byte[] kinds;
+
+    /**
+     * number of labels of the longest rule, counting the "*" of wildcard
+     * rules
+     */
+    private static final int maxLabels;
+
+    static {
+        List<String> rules = null;
+        final String file = System.getProperty(PUBLIC_SUFFIX_LIST_PROPERTY);
+        if (file != null) {
+            try {
+                rules = readRules(Files.newBufferedReader(Paths.get(file),
+                        StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                throw new ExceptionInInitializerError(
+                        "Failed to read public suffix list " + file + ": "
+                                + e.getMessage());
+            }
+        }
+        if (rules == null) {
+            rules = new ArrayList<String>();
+            for (final String rule : DEFAULT_RULES) {
+                rules.add(rule);
+            }
+        }
+
+        int size = 16;
+        while (size < rules.size() * 2) {
+            size <<= 1;
+        }
+        suffixes = new String[size];
+        hashes = new int[size];
+        kinds = new byte[size];
+        int labels = 1;
+        for (final String rule : rules) {
+            byte kind = NORMAL;
+            String suffix = rule.toLowerCase(Locale.ROOT);
+            if (suffix.startsWith("!")) {
+                kind = EXCEPTION;
+                suffix = suffix.substring(1);
+            } else if (suffix.startsWith("*.")) {
+                kind = WILDCARD;
+                suffix = suffix.substring(2);
+            }
+            int slot = suffix.hashCode() & (size - 1);
+            while (suffixes[slot] != null && !suffixes[slot].equals(suffix)) {
+                slot = (slot + 1) & (size - 1);
+            }
+            suffixes[slot] = suffix;
+            hashes[slot] = suffix.hashCode();
+            kinds[slot] |= kind;
+
+            int ruleLabels = kind == WILDCARD ? 2 : 1;
+            for (int i = 0; i < suffix.length(); i++) {
+                if (suffix.charAt(i) == '.') {
+                    ruleLabels++;
+                }
+            }
+            labels = Math.max(labels, ruleLabels);
+        }
+        maxLabels = labels;
+    }
+
+    private DomainParser() {
+    }
+
+    /**
+     * Reads the rules of a list in the format of publicsuffix.org: one rule
+     * per line, comments start with "//", a rule ends at the first white
+     * space
+     *
+     * @param reader
+     *            reader of the list, closed afterwards
+     * @return rules of the list
+     * @throws IOException
+     */
+    static List<String> readRules(final BufferedReader reader)
+            throws IOException {
+        final List<String> rules = new ArrayList<String>();
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("//")) {
+                    continue;
+                }
+                int end = 0;
+                while (end < line.length()
+                        && !Character.isWhitespace(line.charAt(end))) {
+                    end++;
+                }
+                rules.add(line.substring(0, end));
+            }
+        } finally {
+            reader.close();
+        }
+        return rules;
+    }
+
+    /**
+     * Extracts the host of a URL like java.net.URL.getHost(): without
+     * userinfo and port, IPv6 literals keep their brackets. URLs without
+     * authority ("mailto:...", "file:/...") have an empty host.
+     *
+     * @param url
+     *            full URL including the protocol
+     * @return host of the URL
+     * @throws MalformedURLException
+     *             if the protocol is missing or unknown, the port is not a
+     *             number or an IPv6 literal is not closed
+     */
+    public static String getHost(final String url)
+            throws MalformedURLException {
+        final int length = url.length();
+
+        // scheme
+        int colon = 0;
+        while (colon < length && url.charAt(colon) != ':') {
+            final char c = url.charAt(colon);
+            if (c == '/' || c == '?' || c == '#') {
+                break;
+            }
+            colon++;
+        }
+        if (colon == length || url.charAt(colon) != ':') {
+            throw new MalformedURLException("no protocol: " + url);
+        }
+        if (!isKnownProtocol(url, colon)) {
+            throw new MalformedURLException("unknown protocol: "
+                    + url.substring(0, colon));
+        }
+
+        int start = colon + 1;
+        if (start + 1 >= length || url.charAt(start) != '/'
+                || url.charAt(start + 1) != '/') {
+            return "";
+        }
+        start += 2;
+
+        // authority ends at the path, query or fragment
+        int end = start;
+        int at = -1;
+        while (end < length) {
+            final char c = url.charAt(end);
+            if (c == '/' || c == '?' || c == '#') {
+                break;
+            }
+            if (c == '@') {
+                at = end;
+            }
+            end++;
+        }
+        if (at >= 0) {
+            start = at + 1;
+        }
+
+        int hostEnd;
+        if (start < end && url.charAt(start) == '[') {
+            hostEnd = url.indexOf(']', start);
+            if (hostEnd < 0 || hostEnd >= end) {
+                throw new MalformedURLException("Invalid host: "
+                        + url.substring(start, end));
+            }
+            hostEnd++;
+            if (hostEnd < end && url.charAt(hostEnd) != ':') {
+                throw new MalformedURLException("Invalid host: "
+                        + url.substring(start, end));
+            }
+        } else {
+            hostEnd = start;
+            while (hostEnd < end && url.charAt(hostEnd) != ':') {
+                hostEnd++;
+            }
+        }
+
+        // port
+        for (int i = hostEnd + 1; i < end; i++) {
+            final char c = url.charAt(i);
+            if (c < '0' || c > '9') {
+                throw new MalformedURLException("Invalid port: "
+                        + url.substring(hostEnd + 1, end));
+            }
+        }
+
+        return url.substring(start, hostEnd);
+    }
+
+    /**
+     * Returns the registrable domain of a host: its public suffix plus one
+     * label, in lower case. Hosts that are IP addresses or public suffixes
+     * themselves are returned as they are (in lower case).
+     *
+     * @param host
+     *            host of a URL as returned by getHost
+     * @return registrable domain of the host
+     */
+    public static String getRegistrableDomain(final String host) {
+        int end = host.length();
+        // fully qualified host names may end with a dot
+        while (end > 0 && host.charAt(end - 1) == '.') {
+            end--;
+        }
+        if (end == 0 || host.charAt(0) == '[' || isIPv4Address(host, end)) {
+            return toLowerCase(host, 0, end);
+        }
+
+        /*
+         * Look up the suffixes starting at every label from the shortest to
+         * the longest rule, so a longer match replaces a shorter one. The hash
+         * of each suffix is extended by the label in front of it instead of
+         * being computed from scratch.
+         */
+        int publicSuffix = -1;
+        boolean wildcard = false;
+        int hash = 0;
+        int factor = 1;
+        int labels = 0;
+        for (int i = end - 1; i >= -1; i--) {
+            if (i < 0 || host.charAt(i) == '.') {
+                final int start = i + 1;
+                if (publicSuffix < 0 || wildcard) {
+                    // default rule "*" or the label matched by "*.suffix"
+                    publicSuffix = start;
+                    wildcard = false;
+                }
+                final int kind = getKind(host, start, end, hash);
+                if ((kind & EXCEPTION) != 0) {
+                    // the public suffix is the rule without its first label
+                    return toLowerCase(host, start, end);
+                }
+                if ((kind & NORMAL) != 0) {
+                    publicSuffix = start;
+                }
+                wildcard = (kind & WILDCARD) != 0;
+                if (++labels > maxLabels) {
+                    break;
+                }
+            }
+            if (i >= 0) {
+                hash += toLowerCase(host.charAt(i)) * factor;
+                factor *= 31;
+            }
+        }
+
+        if (publicSuffix == 0) {
+            return toLowerCase(host, 0, end);
+        }
+        return toLowerCase(host, host.lastIndexOf('.', publicSuffix - 2) + 1,
+                end);
+    }
+
+    /**
+     * Returns the domain UrlStore has derived the domainID from before the
+     * domain dictionary existed: the last two labels of the host as they are
+     *
+     * @param host
+     *            host of a URL as returned by getHost
+     * @return last two labels of the host
+     */
+    public static String getLegacyDomain(final String host) {
+        // like String.split("\\.") which drops trailing empty labels
+        int end = host.length();
+        while (end > 0 && host.charAt(end - 1) == '.') {
+            end--;
+        }
+        final int last = host.lastIndexOf('.', end - 1);
+        final int previous = last < 0 ? -1 : host.lastIndexOf('.', last - 1);
+        if (previous < 0) {
+            return host;
+        }
+        return host.substring(previous + 1, end);
+    }
+
+    /**
+     * @return kinds of the rules for host[from, to) with the given hash
+     */
+    private static int getKind(
+            final String host,
+            final int from,
+            final int to,
+            final int hash) {
+        final int mask = suffixes.length - 1;
+        int slot = hash & mask;
+        String suffix;
+        while ((suffix = suffixes[slot]) != null) {
+            if (hashes[slot] == hash && suffix.length() == to - from
+                    && suffix.regionMatches(true, 0, host, from, to - from)) {
+                return kinds[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return 0;
+    }
+
+    private static boolean isKnownProtocol(final String url, final int length) {
+        for (final String protocol : PROTOCOLS) {
+            if (protocol.length() == length
+                    && url.regionMatches(true, 0, protocol, 0, length)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isIPv4Address(final String host, final int end) {
+        final char last = host.charAt(end - 1);
+        if (last < '0' || last > '9') {
+            return false;
+        }
+        for (int i = 0; i < end; i++) {
+            final char c = host.charAt(i);
+            if ((c < '0' || c > '9') && c != '.') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static char toLowerCase(final char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+
+    /**
+     * @return host[from, to) in lower case, host itself if it already is
+     */
+    private static String toLowerCase(
+            final String host,
+            final int from,
+            final int to) {
+        boolean lower = true;
+        for (int i = from; i < to && lower; i++) {
+            final char c = host.charAt(i);
+            lower = c < 'A' || c > 'Z';
+        }
+        if (lower) {
+            return from == 0 && to == host.length() ? host : host.substring(
+                    from, to);
+        }
+        final char[] chars = new char[to - from];
+        for (int i = from; i < to; i++) {
+            chars[i - from] = toLowerCase(host.charAt(i));
+        }
+        return new String(chars);
+    }
+}
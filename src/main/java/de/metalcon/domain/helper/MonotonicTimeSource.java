@@ -0,0 +1,80 @@
+package de.metalcon.domain.helper;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * time source that never goes backwards. If the underlying time source steps
+ * back (e.g. corrected by NTP) the largest second seen so far is returned
+ * until the underlying time source has caught up again.
+ */
+public class MonotonicTimeSource implements TimeSource {
+
+    /**
+     * time source to be guarded
+     */
+    private final TimeSource source;
+
+    /**
+     * largest second returned so far
+     */
+    private final AtomicLong latest = new AtomicLong(0);
+
+    /**
+     * number of times the underlying time source went backwards
+     */
+    private final AtomicLong regressions = new AtomicLong(0);
+
+    /**
+     * is the underlying time source behind the largest second seen?
+     */
+    private final AtomicBoolean behind = new AtomicBoolean(false);
+
+    /**
+     * @param source
+     *            time source to be guarded
+     */
+    public MonotonicTimeSource(
+            final TimeSource source) {
+        this.source = source;
+    }
+
+    @Override
+    public long currentSecond() {
+        final long now = source.currentSecond();
+        long seen = latest.get();
+        while (now > seen) {
+            if (latest.compareAndSet(seen, now)) {
+                caughtUp();
+                return now;
+            }
+            seen = latest.get();
+        }
+        if (now < seen) {
+            // count the step back only, not every reading behind it
+            if (!behind.get() && behind.compareAndSet(false, true)) {
+                regressions.incrementAndGet();
+            }
+        } else {
+            caughtUp();
+        }
+        return seen;
+    }
+
+    /**
+     * the underlying time source is not behind (anymore)
+     */
+    private void caughtUp() {
+        if (behind.get()) {
+            behind.set(false);
+        }
+    }
+
+    /**
+     * @return number of times the underlying time source went backwards
+     */
+    public long getRegressionCount() {
+        return regressions.get();
+    }
+
+}
@@ -0,0 +1,13 @@
+package de.metalcon.domain.helper;
+
+/**
+ * time source reading the system clock on every call
+ */
+public class SystemTimeSource implements TimeSource {
+
+    @Override
+    public long currentSecond() {
+        return (System.currentTimeMillis() / 1000) & 0xFFFFFFFFL;
+    }
+
+}
@@ -0,0 +1,13 @@
+package de.metalcon.domain.helper;
+
+/**
+ * source of the timestamps stored in Muids
+ */
+public interface TimeSource {
+
+    /**
+     * @return current unix time in seconds as unsigned 32 bit value
+     */
+    long currentSecond();
+
+}
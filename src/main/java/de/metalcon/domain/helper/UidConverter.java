@@ -1,6 +1,9 @@
 package de.metalcon.domain.helper;
 
+import java.nio.ByteBuffer;
+
 import de.metalcon.domain.UidType;
+import de.metalcon.domain.UidTypeRegistry;
 import de.metalcon.exceptions.MetalconRuntimeException;
 
 /**
@@ -31,19 +34,51 @@ public class UidConverter {
 
     public static final int base = DIGITS.length;
 
+    /**
+     * DIGITS as ASCII bytes
+     */
+    private final static byte[] DIGIT_BYTES;
+
+    /**
+     * number of bits a single digit stores (base is 2^6)
+     */
+    private final static int DIGIT_BITS = 6;
+
+    /**
+     * ASCII bytes of all pairs of digits: the two digits of the 12 bit value v
+     * are stored at 2v (less significant) and 2v + 1
+     */
+    private final static byte[] DIGIT_PAIR_BYTES;
+
+    /**
+     * digit value of each ASCII character or -1 if the character is no digit
+     */
     private final static int[] reverseTokens;
     static {
+        DIGIT_BYTES = new byte[base];
+        DIGIT_PAIR_BYTES = new byte[2 * base * base];
+        for (int i = 0; i != base * base; ++i) {
+            DIGIT_PAIR_BYTES[2 * i] = (byte) DIGITS[i % base];
+            DIGIT_PAIR_BYTES[2 * i + 1] = (byte) DIGITS[i / base];
+        }
         reverseTokens = new int[256];
         for (int i = 0; i != 256; ++i) {
             reverseTokens[i] = -1;
         }
         for (int i = 0; i != base; ++i) {
+            DIGIT_BYTES[i] = (byte) DIGITS[i];
             reverseTokens[(DIGITS[i])] = i;
         }
     }
 
     private final static short Muid_LENGTH = 11;
 
+    /**
+     * the last digit only stores the remaining 64 - 10 * 6 = 4 bits
+     */
+    private final static int LAST_DIGIT_LIMIT = 1 << (64 - (Muid_LENGTH - 1)
+            * DIGIT_BITS);
+
     /**
      * 
      * @param type
@@ -51,15 +86,16 @@ public class UidConverter {
      * @return <true> if the type is a correct value
      */
     public static boolean checkType(final short type) {
-        return type < getLargestAllowedType();
+        return UidTypeRegistry.isRegistered(type);
     }
 
     /**
      * 
-     * @return the largest value a Muid type may have
+     * @return one more than the largest value a Muid type may have, including
+     *         the types registered at the UidTypeRegistry
      */
     public static short getLargestAllowedType() {
-        return UidType.getLargestAllowedType();
+        return UidTypeRegistry.getLargestType();
     }
 
     /**
@@ -288,14 +324,76 @@ public class UidConverter {
      *            The Muid to be parsed
      * @return The alphanumeric string corresponding to the given Muid
      */
-    public static String serialize(long muid) {
-        StringBuilder string = new StringBuilder(13);
+    public static String serialize(final long muid) {
+        char[] string = new char[Muid_LENGTH];
+        serialize(muid, string, 0);
+        return new String(string);
+    }
+
+    /**
+     * Writes the alphanumeric form of the given Muid into a char array. The
+     * least significant digit is written first.
+     * 
+     * @param muid
+     *            The Muid to be parsed
+     * @param dst
+     *            array the Muid_LENGTH characters are written to
+     * @param offset
+     *            index of the first character in dst
+     */
+    public static void serialize(
+            final long muid,
+            final char[] dst,
+            final int offset) {
+        checkBounds(dst.length, offset);
         for (int i = 0; i != Muid_LENGTH; ++i) {
-            int rest = (int) (muid % base);
-            string.append(DIGITS[rest]);
-            muid = muid / base;
+            dst[offset + i] =
+                    DIGITS[(int) (muid >>> (i * DIGIT_BITS)) & (base - 1)];
+        }
+    }
+
+    /**
+     * Writes the alphanumeric form of the given Muid as ASCII into a byte
+     * array
+     * 
+     * @param muid
+     *            The Muid to be parsed
+     * @param dst
+     *            array the Muid_LENGTH bytes are written to
+     * @param offset
+     *            index of the first byte in dst
+     */
+    public static void serialize(
+            final long muid,
+            final byte[] dst,
+            final int offset) {
+        checkBounds(dst.length, offset);
+        for (int i = 0; i != Muid_LENGTH; ++i) {
+            dst[offset + i] =
+                    DIGIT_BYTES[(int) (muid >>> (i * DIGIT_BITS)) & (base - 1)];
+        }
+    }
+
+    /**
+     * Writes the alphanumeric form of the given Muid as ASCII into a buffer.
+     * The position of the buffer is not changed.
+     * 
+     * @param muid
+     *            The Muid to be parsed
+     * @param dst
+     *            buffer the Muid_LENGTH bytes are written to
+     * @param index
+     *            absolute index of the first byte in dst
+     */
+    public static void serialize(
+            final long muid,
+            final ByteBuffer dst,
+            final int index) {
+        checkBounds(dst.limit(), index);
+        for (int i = 0; i != Muid_LENGTH; ++i) {
+            dst.put(index + i,
+                    DIGIT_BYTES[(int) (muid >>> (i * DIGIT_BITS)) & (base - 1)]);
         }
-        return string.toString();
     }
 
     /**
@@ -305,18 +403,252 @@ public class UidConverter {
      * @param idString
      *            The alphanumeric string describing the Muid to be parsed
      * @return The Muid in it's long format
+     * @throws NumberFormatException
+     *             if the string is not exactly Muid_LENGTH valid digits long
      */
     public static long deserialize(final String idString) {
-        long tmp = 0;
-        for (int i = idString.length() - 1; i >= 0; --i) {
-            tmp *= base;
-            char c = idString.charAt(i);
-            if (reverseTokens[c] == -1) {
-                throw new NumberFormatException();
-            }
-            tmp += reverseTokens[c];
+        if (idString.length() != Muid_LENGTH) {
+            throw new NumberFormatException("Muid must consist of "
+                    + Muid_LENGTH + " characters: " + idString);
+        }
+        return deserialize(idString, 0);
+    }
+
+    /**
+     * Parses Muid_LENGTH characters of the given sequence to a Muid
+     * 
+     * @param idString
+     *            sequence containing the alphanumeric Muid
+     * @param offset
+     *            index of the first character of the Muid
+     * @return The Muid in it's long format
+     * @throws NumberFormatException
+     *             if the characters are no valid Muid
+     */
+    public static long deserialize(
+            final CharSequence idString,
+            final int offset) {
+        checkLength(idString.length(), offset);
+        long muid = 0;
+        int invalid = 0;
+        int digit = 0;
+        for (int i = 0; i != Muid_LENGTH; ++i) {
+            digit = digitOf(idString.charAt(offset + i));
+            invalid |= digit;
+            muid |= (long) digit << (i * DIGIT_BITS);
+        }
+        return checkDigits(muid, invalid, digit);
+    }
+
+    /**
+     * Parses Muid_LENGTH characters of the given array to a Muid
+     * 
+     * @param src
+     *            array containing the alphanumeric Muid
+     * @param offset
+     *            index of the first character of the Muid
+     * @return The Muid in it's long format
+     * @throws NumberFormatException
+     *             if the characters are no valid Muid
+     */
+    public static long deserialize(final char[] src, final int offset) {
+        checkLength(src.length, offset);
+        long muid = 0;
+        int invalid = 0;
+        int digit = 0;
+        for (int i = 0; i != Muid_LENGTH; ++i) {
+            digit = digitOf(src[offset + i]);
+            invalid |= digit;
+            muid |= (long) digit << (i * DIGIT_BITS);
+        }
+        return checkDigits(muid, invalid, digit);
+    }
+
+    /**
+     * Parses Muid_LENGTH ASCII bytes of the given array to a Muid
+     * 
+     * @param src
+     *            array containing the alphanumeric Muid
+     * @param offset
+     *            index of the first byte of the Muid
+     * @return The Muid in it's long format
+     * @throws NumberFormatException
+     *             if the bytes are no valid Muid
+     */
+    public static long deserialize(final byte[] src, final int offset) {
+        checkLength(src.length, offset);
+        long muid = 0;
+        int invalid = 0;
+        int digit = 0;
+        for (int i = 0; i != Muid_LENGTH; ++i) {
+            digit = reverseTokens[src[offset + i] & 0xFF];
+            invalid |= digit;
+            muid |= (long) digit << (i * DIGIT_BITS);
+        }
+        return checkDigits(muid, invalid, digit);
+    }
+
+    /**
+     * Parses Muid_LENGTH ASCII bytes of the given buffer to a Muid. The
+     * position of the buffer is not changed.
+     * 
+     * @param src
+     *            buffer containing the alphanumeric Muid
+     * @param index
+     *            absolute index of the first byte of the Muid
+     * @return The Muid in it's long format
+     * @throws NumberFormatException
+     *             if the bytes are no valid Muid
+     */
+    public static long deserialize(final ByteBuffer src, final int index) {
+        checkLength(src.limit(), index);
+        long muid = 0;
+        int invalid = 0;
+        int digit = 0;
+        for (int i = 0; i != Muid_LENGTH; ++i) {
+            digit = reverseTokens[src.get(index + i) & 0xFF];
+            invalid |= digit;
+            muid |= (long) digit << (i * DIGIT_BITS);
+        }
+        return checkDigits(muid, invalid, digit);
+    }
+
+    /**
+     * Writes the alphanumeric forms of all given Muids as ASCII into a byte
+     * array. The Muids are written back to back, each taking Muid_LENGTH
+     * bytes, the output equals calling serialize(long, byte[], int) for each
+     * Muid. Two digits are looked up at once.
+     * 
+     * @param muids
+     *            The Muids to be parsed
+     * @param dst
+     *            array of at least muids.length * Muid_LENGTH bytes
+     */
+    public static void serializeAll(final long[] muids, final byte[] dst) {
+        if (dst.length / Muid_LENGTH < muids.length) {
+            throw new IndexOutOfBoundsException("No room for " + muids.length
+                    + " Muids in " + dst.length + " bytes");
+        }
+        final byte[] pairs = DIGIT_PAIR_BYTES;
+        final int pairMask = base * base - 1;
+        int pos = 0;
+        for (final long muid : muids) {
+            int pair = 2 * ((int) muid & pairMask);
+            dst[pos] = pairs[pair];
+            dst[pos + 1] = pairs[pair + 1];
+            pair = 2 * ((int) (muid >>> 12) & pairMask);
+            dst[pos + 2] = pairs[pair];
+            dst[pos + 3] = pairs[pair + 1];
+            pair = 2 * ((int) (muid >>> 24) & pairMask);
+            dst[pos + 4] = pairs[pair];
+            dst[pos + 5] = pairs[pair + 1];
+            pair = 2 * ((int) (muid >>> 36) & pairMask);
+            dst[pos + 6] = pairs[pair];
+            dst[pos + 7] = pairs[pair + 1];
+            pair = 2 * ((int) (muid >>> 48) & pairMask);
+            dst[pos + 8] = pairs[pair];
+            dst[pos + 9] = pairs[pair + 1];
+            dst[pos + 10] = DIGIT_BYTES[(int) (muid >>> 60)];
+            pos += Muid_LENGTH;
+        }
+    }
+
+    /**
+     * Parses Muids written back to back by serializeAll
+     * 
+     * @param src
+     *            array containing dst.length Muids of Muid_LENGTH ASCII bytes
+     * @param dst
+     *            array the Muids are written to
+     * @throws NumberFormatException
+     *             if any of the Muids is invalid
+     */
+    public static void deserializeAll(final byte[] src, final long[] dst) {
+        if (src.length / Muid_LENGTH < dst.length) {
+            throw new NumberFormatException("Expected " + dst.length
+                    + " Muids in " + src.length + " bytes");
+        }
+        final int[] tokens = reverseTokens;
+        int pos = 0;
+        for (int i = 0; i != dst.length; ++i) {
+            final int d0 = tokens[src[pos] & 0xFF];
+            final int d1 = tokens[src[pos + 1] & 0xFF];
+            final int d2 = tokens[src[pos + 2] & 0xFF];
+            final int d3 = tokens[src[pos + 3] & 0xFF];
+            final int d4 = tokens[src[pos + 4] & 0xFF];
+            final int d5 = tokens[src[pos + 5] & 0xFF];
+            final int d6 = tokens[src[pos + 6] & 0xFF];
+            final int d7 = tokens[src[pos + 7] & 0xFF];
+            final int d8 = tokens[src[pos + 8] & 0xFF];
+            final int d9 = tokens[src[pos + 9] & 0xFF];
+            final int d10 = tokens[src[pos + 10] & 0xFF];
+            final int invalid =
+                    d0 | d1 | d2 | d3 | d4 | d5 | d6 | d7 | d8 | d9 | d10;
+            dst[i] =
+                    checkDigits(d0 | (long) d1 << 6 | (long) d2 << 12
+                            | (long) d3 << 18 | (long) d4 << 24
+                            | (long) d5 << 30 | (long) d6 << 36
+                            | (long) d7 << 42 | (long) d8 << 48
+                            | (long) d9 << 54 | (long) d10 << 60, invalid,
+                            d10);
+            pos += Muid_LENGTH;
+        }
+    }
+
+    /**
+     * @param c
+     *            character to be looked up
+     * @return the value of the digit c or -1 if c is no digit
+     */
+    private static int digitOf(final char c) {
+        return c < reverseTokens.length ? reverseTokens[c] : -1;
+    }
+
+    /**
+     * Checks the result of a deserialization
+     * 
+     * @param muid
+     *            the deserialized Muid
+     * @param invalid
+     *            all digit values ORed together: negative if any character
+     *            has been no digit
+     * @param last
+     *            value of the last (most significant) digit
+     * @return muid
+     * @throws NumberFormatException
+     *             if a character has been no digit or the last digit does
+     *             not fit into 64 bits
+     */
+    private static long checkDigits(
+            final long muid,
+            final int invalid,
+            final int last) {
+        if ((invalid | (LAST_DIGIT_LIMIT - 1 - last)) < 0) {
+            throw new NumberFormatException("Invalid Muid character");
+        }
+        return muid;
+    }
+
+    /**
+     * @throws NumberFormatException
+     *             if a Muid starting at offset does not fit into length
+     */
+    private static void checkLength(final int length, final int offset) {
+        if (offset < 0 || length - offset < Muid_LENGTH) {
+            throw new NumberFormatException("Muid must consist of "
+                    + Muid_LENGTH + " characters");
+        }
+    }
+
+    /**
+     * @throws IndexOutOfBoundsException
+     *             if a Muid starting at offset does not fit into length
+     */
+    private static void checkBounds(final int length, final int offset) {
+        if (offset < 0 || length - offset < Muid_LENGTH) {
+            throw new IndexOutOfBoundsException("No room for "
+                    + Muid_LENGTH + " characters at " + offset);
         }
-        return tmp;
     }
 
     /**
@@ -353,16 +685,52 @@ public class UidConverter {
          * Split the muid into shorts and xor them
          */
         short hash = generatePersistentHash(muid);
-        char[] paths = new char[3];
-        paths[0] = (char) ('a' + (hash & 15));
-        paths[1] = (char) ('a' + ((hash >> 4) & 15));
-        paths[2] = (char) ('a' + ((hash >> 8) & 15));
-
-        return folderChars[(hash & 15)] + "/" + folderChars[((hash >> 4) & 15)]
-                + "/" + folderChars[((hash >> 8) & 15)] + "/";
+        return new String(new char[] {
+            folderChars[(hash & 15)], '/', folderChars[((hash >> 4) & 15)],
+            '/', folderChars[((hash >> 8) & 15)], '/'
+        });
     }
 
     public static short generatePersistentHash(final long muid) {
         return (short) ((muid ^ (muid >>> 16)) ^ ((muid >>> 32) ^ (muid >>> 48)));
     }
+
+    /**
+     * Generates a 64 bit hash of the given Muid in which every bit depends on
+     * every bit of the Muid (finalizer of MurmurHash3). Unlike
+     * generatePersistentHash Muids differing only in a few timestamp or fine
+     * time bits spread over the whole hash, so any subset of its bits can be
+     * used as a table index.
+     * 
+     * @param muid
+     *            The Muid to be hashed
+     * @return The 64 bit hash of the Muid
+     */
+    public static long generateMixedHash(final long muid) {
+        long hash = muid;
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    /**
+     * Generates a 64 bit fingerprint of a URL (FNV-1a over the characters,
+     * finished by generateMixedHash). The fingerprints are persisted by the
+     * UrlStore so the function must never change.
+     * 
+     * @param url
+     *            The URL to be hashed
+     * @return The 64 bit fingerprint of the URL
+     */
+    public static long generateUrlFingerprint(final CharSequence url) {
+        final int length = url.length();
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < length; i++) {
+            hash = (hash ^ url.charAt(i)) * 0x100000001b3L;
+        }
+        return generateMixedHash(hash ^ length);
+    }
 }
@@ -0,0 +1,127 @@
+package de.metalcon.domain.metrics;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongBinaryOperator;
+
+/**
+ * concurrent histogram of non-negative values in power of two buckets<br>
+ * <br>
+ * Bucket 0 counts the value 0, bucket i > 0 the values in [2^(i-1), 2^i).
+ * Every bucket is a LongAdder so threads recording at the same time update
+ * different cells instead of contending for a single counter.
+ */
+public class Histogram {
+
+    /**
+     * number of buckets: 0 and one per bit of a positive long
+     */
+    public static final int BUCKETS = 64;
+
+    private static final LongBinaryOperator MAX = new LongBinaryOperator() {
+
+        @Override
+        public long applyAsLong(final long left, final long right) {
+            return Math.max(left, right);
+        }
+    };
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+
+    private final LongAdder sum = new LongAdder();
+
+    private final LongAccumulator maximum = new LongAccumulator(MAX, 0);
+
+    /**
+     * create a new empty histogram
+     */
+    public Histogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * @param value
+     *            value to be counted, negative values are counted as 0
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        buckets[64 - Long.numberOfLeadingZeros(value)].increment();
+        sum.add(value);
+        maximum.accumulate(value);
+    }
+
+    /**
+     * @return number of recorded values per bucket
+     */
+    public long[] getCounts() {
+        final long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets[i].sum();
+        }
+        return counts;
+    }
+
+    /**
+     * @return number of recorded values
+     */
+    public long getCount() {
+        long count = 0;
+        for (final LongAdder bucket : buckets) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    /**
+     * @return mean of the recorded values or 0 if there are none
+     */
+    public double getMean() {
+        final long count = getCount();
+        return count == 0 ? 0 : (double) sum.sum() / count;
+    }
+
+    /**
+     * @return largest recorded value
+     */
+    public long getMaximum() {
+        return maximum.get();
+    }
+
+    /**
+     * @param quantile
+     *            quantile in [0, 1], e.g. 0.99
+     * @return upper bound of the bucket containing the quantile (at most the
+     *         largest recorded value)
+     */
+    public long getQuantile(final double quantile) {
+        final long[] counts = getCounts();
+        long count = 0;
+        for (final long bucket : counts) {
+            count += bucket;
+        }
+        final long rank = (long) Math.ceil(quantile * count);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank && seen > 0) {
+                return i == 0 ? 0 : Math.min(getMaximum(), (1L << i) - 1);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * removes all recorded values. Values recorded concurrently may be lost.
+     */
+    public void reset() {
+        for (final LongAdder bucket : buckets) {
+            bucket.reset();
+        }
+        sum.reset();
+        maximum.reset();
+    }
+}
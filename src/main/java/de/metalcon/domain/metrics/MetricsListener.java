@@ -0,0 +1,69 @@
+package de.metalcon.domain.metrics;
+
+import de.metalcon.domain.OverloadPolicy;
+
+/**
+ * listener for the events recorded by MuidMetrics<br>
+ * <br>
+ * The methods are called by the threads creating Muids and UrlIds, so they
+ * must be thread-safe, fast and must not throw.
+ */
+public interface MetricsListener {
+
+    /**
+     * Muids of a type have been created during a second that has passed now.
+     * Called once per type and second by the generator moving on to a newer
+     * second.
+     *
+     * @param type
+     *            raw identifier of the type
+     * @param second
+     *            unix time in seconds the Muids have been created in
+     * @param count
+     *            number of Muids created during the second. Claims racing
+     *            the change of the second may be counted although their
+     *            Muids have been created in the following second.
+     */
+    void idsCreated(short type, long second, int count);
+
+    /**
+     * The fine times of the current second of a type have been exhausted
+     *
+     * @param type
+     *            raw identifier of the type
+     * @param policy
+     *            overload policy that has been applied
+     */
+    void overloaded(short type, OverloadPolicy policy);
+
+    /**
+     * UrlStore.getOrCreateID has resolved a URL
+     *
+     * @param nanos
+     *            duration of the call
+     * @param probeLength
+     *            number of colliding UrlIds skipped before the URL has been
+     *            found or a free UrlId has been reached
+     * @param created
+     *            true if a new UrlId has been stored
+     */
+    void urlLookup(long nanos, int probeLength, boolean created);
+
+    /**
+     * A URL has been looked up in the UrlIdCache
+     *
+     * @param hit
+     *            true if the UrlID of the URL has been cached
+     */
+    void urlCacheLookup(boolean hit);
+
+    /**
+     * one value has been read from LevelDB
+     */
+    void levelDbRead();
+
+    /**
+     * one value has been written to LevelDB
+     */
+    void levelDbWrite();
+}
@@ -0,0 +1,239 @@
+package de.metalcon.domain.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import de.metalcon.domain.Muid;
+import de.metalcon.domain.OverloadPolicy;
+import de.metalcon.domain.UidTypeRegistry;
+
+/**
+ * built-in MetricsListener aggregating all events into counters<br>
+ * <br>
+ * Events recorded per call (overloads, URL lookups, LevelDB accesses) are
+ * counted in LongAdders and Histograms so recording threads do not contend.
+ * Created Muids are reported once per type and second and are therefore kept
+ * in plain atomic arrays indexed by the raw type.
+ */
+public class MetricsRecorder implements MetricsListener, MetricsRecorderMXBean {
+
+    private final AtomicLongArray createdIds = new AtomicLongArray(
+            UidTypeRegistry.MAXIMUM_TYPE_COUNT);
+
+    private final AtomicLongArray peakIds = new AtomicLongArray(
+            UidTypeRegistry.MAXIMUM_TYPE_COUNT);
+
+    private final LongAdder[] overloads =
+            new LongAdder[OverloadPolicy.values().length];
+
+    private final LongAdder urlsCreated = new LongAdder();
+
+    private final Histogram urlLookupNanos = new Histogram();
+
+    private final Histogram probeLengths = new Histogram();
+
+    private final LongAdder urlCacheHits = new LongAdder();
+
+    private final LongAdder urlCacheMisses = new LongAdder();
+
+    private final LongAdder levelDbReads = new LongAdder();
+
+    private final LongAdder levelDbWrites = new LongAdder();
+
+    public MetricsRecorder() {
+        for (int i = 0; i < overloads.length; i++) {
+            overloads[i] = new LongAdder();
+        }
+    }
+
+    @Override
+    public void idsCreated(final short type, final long second, final int count) {
+        createdIds.addAndGet(type, count);
+        long peak;
+        while (count > (peak = peakIds.get(type))) {
+            if (peakIds.compareAndSet(type, peak, count)) {
+                break;
+            }
+        }
+    }
+
+    @Override
+    public void overloaded(final short type, final OverloadPolicy policy) {
+        overloads[policy.ordinal()].increment();
+    }
+
+    @Override
+    public void urlLookup(
+            final long nanos,
+            final int probeLength,
+            final boolean created) {
+        urlLookupNanos.record(nanos);
+        probeLengths.record(probeLength);
+        if (created) {
+            urlsCreated.increment();
+        }
+    }
+
+    @Override
+    public void urlCacheLookup(final boolean hit) {
+        if (hit) {
+            urlCacheHits.increment();
+        } else {
+            urlCacheMisses.increment();
+        }
+    }
+
+    @Override
+    public void levelDbRead() {
+        levelDbReads.increment();
+    }
+
+    @Override
+    public void levelDbWrite() {
+        levelDbWrites.increment();
+    }
+
+    @Override
+    public Map<String, Long> getCreatedIds() {
+        return toMap(createdIds);
+    }
+
+    @Override
+    public Map<String, Long> getPeakIdsPerSecond() {
+        return toMap(peakIds);
+    }
+
+    @Override
+    public Map<String, Long> getCurrentIdsPerSecond() {
+        final Map<String, Long> current = new TreeMap<String, Long>();
+        for (short type = 0; type < UidTypeRegistry.MAXIMUM_TYPE_COUNT; type++) {
+            final int count = Muid.getGenerator().getCurrentCount(type);
+            if (count != 0) {
+                current.put(getName(type), (long) count);
+            }
+        }
+        return current;
+    }
+
+    @Override
+    public Map<String, Long> getOverloads() {
+        final Map<String, Long> counts = new TreeMap<String, Long>();
+        for (final OverloadPolicy policy : OverloadPolicy.values()) {
+            counts.put(policy.name(), overloads[policy.ordinal()].sum());
+        }
+        return counts;
+    }
+
+    @Override
+    public long getUrlLookups() {
+        return urlLookupNanos.getCount();
+    }
+
+    @Override
+    public long getUrlsCreated() {
+        return urlsCreated.sum();
+    }
+
+    @Override
+    public long[] getUrlLookupLatencyHistogram() {
+        return urlLookupNanos.getCounts();
+    }
+
+    @Override
+    public double getUrlLookupMeanNanos() {
+        return urlLookupNanos.getMean();
+    }
+
+    @Override
+    public long getUrlLookupMedianNanos() {
+        return urlLookupNanos.getQuantile(0.5);
+    }
+
+    @Override
+    public long getUrlLookupP99Nanos() {
+        return urlLookupNanos.getQuantile(0.99);
+    }
+
+    @Override
+    public long getUrlLookupMaximumNanos() {
+        return urlLookupNanos.getMaximum();
+    }
+
+    @Override
+    public long[] getProbeLengthHistogram() {
+        return probeLengths.getCounts();
+    }
+
+    @Override
+    public double getMeanProbeLength() {
+        return probeLengths.getMean();
+    }
+
+    @Override
+    public long getMaximumProbeLength() {
+        return probeLengths.getMaximum();
+    }
+
+    @Override
+    public long getUrlCacheHits() {
+        return urlCacheHits.sum();
+    }
+
+    @Override
+    public long getUrlCacheMisses() {
+        return urlCacheMisses.sum();
+    }
+
+    @Override
+    public double getUrlCacheHitRatio() {
+        final long hits = urlCacheHits.sum();
+        final long total = hits + urlCacheMisses.sum();
+        return total == 0 ? 0 : hits / (double) total;
+    }
+
+    @Override
+    public long getLevelDbReads() {
+        return levelDbReads.sum();
+    }
+
+    @Override
+    public long getLevelDbWrites() {
+        return levelDbWrites.sum();
+    }
+
+    @Override
+    public void reset() {
+        for (int type = 0; type < UidTypeRegistry.MAXIMUM_TYPE_COUNT; type++) {
+            createdIds.set(type, 0);
+            peakIds.set(type, 0);
+        }
+        for (final LongAdder overload : overloads) {
+            overload.reset();
+        }
+        urlsCreated.reset();
+        urlLookupNanos.reset();
+        probeLengths.reset();
+        urlCacheHits.reset();
+        urlCacheMisses.reset();
+        levelDbReads.reset();
+        levelDbWrites.reset();
+    }
+
+    private static Map<String, Long> toMap(final AtomicLongArray counts) {
+        final Map<String, Long> map = new TreeMap<String, Long>();
+        for (short type = 0; type < counts.length(); type++) {
+            final long count = counts.get(type);
+            if (count != 0) {
+                map.put(getName(type), count);
+            }
+        }
+        return map;
+    }
+
+    private static String getName(final short type) {
+        final String identifier = UidTypeRegistry.getIdentifier(type);
+        return identifier == null ? String.valueOf(type) : identifier;
+    }
+}
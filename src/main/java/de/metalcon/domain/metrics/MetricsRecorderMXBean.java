@@ -0,0 +1,79 @@
+package de.metalcon.domain.metrics;
+
+import java.util.Map;
+
+/**
+ * JMX view of the MetricsRecorder, registered by MuidMetrics.registerMBean()
+ * as de.metalcon.muid:type=Metrics. Maps are keyed by type identifier.
+ */
+public interface MetricsRecorderMXBean {
+
+    /**
+     * @return number of Muids per type created during passed seconds
+     */
+    Map<String, Long> getCreatedIds();
+
+    /**
+     * @return largest number of Muids per type created during one second,
+     *         compare with 0xFFFF+1
+     */
+    Map<String, Long> getPeakIdsPerSecond();
+
+    /**
+     * @return number of Muids per type created by Muid.create during the
+     *         current second so far
+     */
+    Map<String, Long> getCurrentIdsPerSecond();
+
+    /**
+     * @return number of exhausted seconds per applied overload policy
+     */
+    Map<String, Long> getOverloads();
+
+    long getUrlLookups();
+
+    long getUrlsCreated();
+
+    /**
+     * @return number of getOrCreateID calls per latency bucket: bucket 0 is
+     *         0ns, bucket i > 0 is [2^(i-1), 2^i) ns
+     */
+    long[] getUrlLookupLatencyHistogram();
+
+    double getUrlLookupMeanNanos();
+
+    long getUrlLookupMedianNanos();
+
+    long getUrlLookupP99Nanos();
+
+    long getUrlLookupMaximumNanos();
+
+    /**
+     * @return number of getOrCreateID calls per probe length bucket: bucket 0
+     *         is 0, bucket i > 0 is [2^(i-1), 2^i)
+     */
+    long[] getProbeLengthHistogram();
+
+    double getMeanProbeLength();
+
+    long getMaximumProbeLength();
+
+    long getUrlCacheHits();
+
+    long getUrlCacheMisses();
+
+    /**
+     * @return share of UrlIdCache lookups that have been hits, 0 if there
+     *         have been none
+     */
+    double getUrlCacheHitRatio();
+
+    long getLevelDbReads();
+
+    long getLevelDbWrites();
+
+    /**
+     * resets all counters
+     */
+    void reset();
+}
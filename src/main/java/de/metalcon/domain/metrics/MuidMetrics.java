@@ -0,0 +1,165 @@
+package de.metalcon.domain.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import de.metalcon.domain.OverloadPolicy;
+import de.metalcon.exceptions.MetalconRuntimeException;
+
+/**
+ * instrumentation of Muid generation and the UrlStore<br>
+ * <br>
+ * Events are passed to all registered MetricsListeners. The built-in
+ * MetricsRecorder is always registered and can be exposed via JMX with
+ * registerMBean(). The listeners are kept in a copy-on-write array so
+ * recording an event never locks.
+ */
+public final class MuidMetrics {
+
+    /**
+     * name the MetricsRecorder is registered with at the platform MBean
+     * server
+     */
+    public static final String OBJECT_NAME = "de.metalcon.muid:type=Metrics";
+
+    private static final MetricsRecorder recorder = new MetricsRecorder();
+
+    private static volatile MetricsListener[] listeners = new MetricsListener[] {
+        recorder
+    };
+
+    private MuidMetrics() {
+    }
+
+    /**
+     * @return the built-in listener aggregating all events
+     */
+    public static MetricsRecorder getRecorder() {
+        return recorder;
+    }
+
+    /**
+     * @param listener
+     *            listener to receive all future events
+     */
+    public static synchronized void addListener(final MetricsListener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("Listener may not be null");
+        }
+        final MetricsListener[] updated =
+                Arrays.copyOf(listeners, listeners.length + 1);
+        updated[listeners.length] = listener;
+        listeners = updated;
+    }
+
+    /**
+     * @param listener
+     *            listener to receive no more events
+     * @return true if the listener has been registered
+     */
+    public static synchronized boolean removeListener(
+            final MetricsListener listener) {
+        if (listener == recorder) {
+            return false;
+        }
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] == listener) {
+                final MetricsListener[] updated =
+                        new MetricsListener[listeners.length - 1];
+                System.arraycopy(listeners, 0, updated, 0, i);
+                System.arraycopy(listeners, i + 1, updated, i,
+                        updated.length - i);
+                listeners = updated;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Registers the MetricsRecorder at the platform MBean server unless it is
+     * already registered
+     */
+    public static synchronized void registerMBean() {
+        try {
+            final MBeanServer server =
+                    ManagementFactory.getPlatformMBeanServer();
+            final ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(recorder, name);
+            }
+        } catch (InstanceAlreadyExistsException e) {
+            // registered concurrently by another class loader
+        } catch (JMException e) {
+            throw new MetalconRuntimeException(
+                    "Failed to register the metrics MBean: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @see MetricsListener#idsCreated(short, long, int)
+     */
+    public static void recordIdsCreated(
+            final short type,
+            final long second,
+            final int count) {
+        for (final MetricsListener listener : listeners) {
+            listener.idsCreated(type, second, count);
+        }
+    }
+
+    /**
+     * @see MetricsListener#overloaded(short, OverloadPolicy)
+     */
+    public static void recordOverload(
+            final short type,
+            final OverloadPolicy policy) {
+        for (final MetricsListener listener : listeners) {
+            listener.overloaded(type, policy);
+        }
+    }
+
+    /**
+     * @see MetricsListener#urlLookup(long, int, boolean)
+     */
+    public static void recordUrlLookup(
+            final long nanos,
+            final int probeLength,
+            final boolean created) {
+        for (final MetricsListener listener : listeners) {
+            listener.urlLookup(nanos, probeLength, created);
+        }
+    }
+
+    /**
+     * @see MetricsListener#urlCacheLookup(boolean)
+     */
+    public static void recordUrlCacheLookup(final boolean hit) {
+        for (final MetricsListener listener : listeners) {
+            listener.urlCacheLookup(hit);
+        }
+    }
+
+    /**
+     * @see MetricsListener#levelDbRead()
+     */
+    public static void recordLevelDbRead() {
+        for (final MetricsListener listener : listeners) {
+            listener.levelDbRead();
+        }
+    }
+
+    /**
+     * @see MetricsListener#levelDbWrite()
+     */
+    public static void recordLevelDbWrite() {
+        for (final MetricsListener listener : listeners) {
+            listener.levelDbWrite();
+        }
+    }
+}
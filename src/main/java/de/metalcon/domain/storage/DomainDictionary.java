@@ -0,0 +1,119 @@
+package de.metalcon.domain.storage;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import de.metalcon.dbhelper.LevelDbHandler;
+import de.metalcon.domain.metrics.MuidMetrics;
+
+/**
+ * persistent dictionary giving every domain a dense 16 bit ID<br>
+ * <br>
+ * IDs are handed out in ascending order starting at 0 and stored in LevelDB
+ * with the ID as key. As there are no gaps the dictionary is loaded on
+ * startup by reading the IDs one after another until the first free one.
+ * Both directions are kept in memory afterwards: resolving a domain or an ID
+ * never touches LevelDB.
+ */
+class DomainDictionary {
+
+    /**
+     * number of IDs that fit into the domainID of a UrlID
+     */
+    public static final int CAPACITY = 1 << 16;
+
+    private final LevelDbHandler db;
+
+    private final ConcurrentHashMap<String, Short> ids =
+            new ConcurrentHashMap<String, Short>();
+
+    private final String[] domains = new String[CAPACITY];
+
+    /**
+     * number of IDs handed out, written under the lock of this dictionary
+     */
+    private volatile int size;
+
+    /**
+     * load the dictionary
+     *
+     * @param db
+     *            LevelDB handler storing the domains by their ID
+     */
+    public DomainDictionary(
+            final LevelDbHandler db) {
+        this.db = db;
+        while (size < CAPACITY) {
+            MuidMetrics.recordLevelDbRead();
+            final String domain = db.getString(size);
+            if (domain == null) {
+                break;
+            }
+            domains[size] = domain;
+            ids.put(domain, (short) size);
+            size++;
+        }
+    }
+
+    /**
+     * @param domain
+     *            a domain
+     * @return ID of the domain (0 to 0xFFFF) or -1 if it is not known
+     */
+    public int getID(final String domain) {
+        final Short id = ids.get(domain);
+        return id == null ? -1 : id & 0xFFFF;
+    }
+
+    /**
+     * Returns the ID of a domain and stores the domain with the next free ID
+     * if it is not known yet
+     *
+     * @param domain
+     *            a domain
+     * @return ID of the domain (0 to 0xFFFF) or -1 if all IDs are taken
+     */
+    public int getOrCreateID(final String domain) {
+        final int id = getID(domain);
+        if (id >= 0) {
+            return id;
+        }
+        synchronized (this) {
+            final Short stored = ids.get(domain);
+            if (stored != null) {
+                return stored & 0xFFFF;
+            }
+            if (size == CAPACITY) {
+                return -1;
+            }
+
+            // persist first: an ID that has been handed out is never reused
+            MuidMetrics.recordLevelDbWrite();
+            db.put(size, domain);
+            domains[size] = domain;
+            ids.put(domain, (short) size);
+            return size++;
+        }
+    }
+
+    /**
+     * @param id
+     *            ID of a domain
+     * @return the domain or null if the ID has not been handed out. The ID
+     *         of a UrlID may also be a legacy hash of another domain in
+     *         stores that predate the dictionary.
+     */
+    public String getDomain(final short id) {
+        // reading size first makes the domains stored before visible
+        if ((id & 0xFFFF) >= size) {
+            return null;
+        }
+        return domains[id & 0xFFFF];
+    }
+
+    /**
+     * @return number of IDs handed out
+     */
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,419 @@
+package de.metalcon.domain.storage;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import de.metalcon.dbhelper.LevelDbHandler;
+import de.metalcon.domain.metrics.MuidMetrics;
+
+/**
+ * write-behind log committing the puts to LevelDB tables in groups<br>
+ * <br>
+ * A put is visible immediately through the in-memory overlay of its Table and
+ * queued for a background thread. The thread writes the queue as soon as
+ * batchSize puts are queued, maxDelay has passed since the oldest one was
+ * queued or flush() has been called. A group is written table by table in
+ * ascending key order, in the order the tables have been created, and the
+ * overlay entries are removed after they have been written. flush() returns a
+ * future completed when all puts queued before the call are in LevelDB.<br>
+ * A group failing to be written is retried after a backoff doubling from
+ * maxDelay (at least 1 ms) up to 1 s. After MAX_RETRIES failed retries the
+ * committer gives up: the puts stay visible in the overlay, pending and
+ * further flushes fail and close() throws the failure.<br>
+ * Values of a key must not change, as UrlIDs and fingerprints of stored URLs
+ * never do.
+ */
+final class GroupCommitter {
+
+    /**
+     * LevelDB table whose puts are committed by this GroupCommitter
+     */
+    final class Table {
+
+        private final LevelDbHandler db;
+
+        /**
+         * order of the table within a group
+         */
+        private final int number;
+
+        /**
+         * puts not written to LevelDB yet
+         */
+        private final ConcurrentHashMap<Long, String> overlay =
+                new ConcurrentHashMap<Long, String>();
+
+        private Table(
+                final LevelDbHandler db,
+                final int number) {
+            this.db = db;
+            this.number = number;
+        }
+
+        /**
+         * Queues a put, the value is visible immediately
+         *
+         * @param key
+         *            key of the value
+         * @param value
+         *            value to be stored
+         */
+        void put(final long key, final String value) {
+            overlay.put(key, value);
+            enqueue(new Put(this, key, value));
+        }
+
+        /**
+         * Reads the overlay and LevelDB if the value is not in the overlay.
+         * Only the read of LevelDB is recorded in MuidMetrics.
+         *
+         * @param key
+         *            key of the value
+         * @return the value put last or null if there is none
+         */
+        String getString(final long key) {
+            final String value = overlay.get(key);
+            if (value != null) {
+                return value;
+            }
+            MuidMetrics.recordLevelDbRead();
+            return db.getString(key);
+        }
+
+        /**
+         * @return number of puts not written to LevelDB yet
+         */
+        int getPendingCount() {
+            return overlay.size();
+        }
+    }
+
+    private static class Put {
+
+        final Table table;
+
+        final long key;
+
+        final String value;
+
+        Put(
+                final Table table,
+                final long key,
+                final String value) {
+            this.table = table;
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    /**
+     * caller of flush() waiting for a sequence number to be committed
+     */
+    private static class Barrier {
+
+        final long sequence;
+
+        final CompletableFuture<Void> future = new CompletableFuture<Void>();
+
+        Barrier(
+                final long sequence) {
+            this.sequence = sequence;
+        }
+    }
+
+    /**
+     * orders the puts of a group by table and key
+     */
+    private static final Comparator<Put> KEY_ORDER = new Comparator<Put>() {
+
+        @Override
+        public int compare(final Put a, final Put b) {
+            if (a.table != b.table) {
+                return Integer.compare(a.table.number, b.table.number);
+            }
+            return Long.compare(a.key, b.key);
+        }
+    };
+
+    /**
+     * number of retries of a failing group before the committer gives up
+     */
+    static final int MAX_RETRIES = 8;
+
+    /**
+     * minimum backoff before a failed group is retried, in nanoseconds
+     */
+    private static final long MIN_BACKOFF = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /**
+     * maximum backoff before a failed group is retried, in nanoseconds
+     */
+    private static final long MAX_BACKOFF = TimeUnit.SECONDS.toNanos(1);
+
+    private final int batchSize;
+
+    private final long maxDelay;
+
+    /**
+     * number of tables created
+     */
+    private int tableCount;
+
+    /**
+     * puts not taken by the committer yet, guarded by this
+     */
+    private List<Put> queue = new ArrayList<Put>();
+
+    /**
+     * System.nanoTime() the oldest put of the queue has been queued at
+     */
+    private long oldest;
+
+    /**
+     * sequence number of the last put queued
+     */
+    private long queued;
+
+    /**
+     * sequence number of the last put written
+     */
+    private long committed;
+
+    private final List<Barrier> barriers = new ArrayList<Barrier>();
+
+    private boolean flushRequested;
+
+    private boolean closed;
+
+    /**
+     * number of failed writes of the current group
+     */
+    private int failures;
+
+    /**
+     * System.nanoTime() the current group may be retried at
+     */
+    private long retryAt;
+
+    /**
+     * failure the committer has given up with, null while it is running
+     */
+    private RuntimeException failure;
+
+    private final Thread committer;
+
+    /**
+     * create a new GroupCommitter and start its thread
+     *
+     * @param batchSize
+     *            number of queued puts that are written without waiting
+     * @param maxDelay
+     *            maximum time in milliseconds a put is queued
+     */
+    GroupCommitter(
+            final int batchSize,
+            final long maxDelay) {
+        if (batchSize <= 0 || maxDelay < 0) {
+            throw new IllegalArgumentException("Invalid group commit size "
+                    + batchSize + " or delay " + maxDelay);
+        }
+        this.batchSize = batchSize;
+        this.maxDelay = TimeUnit.MILLISECONDS.toNanos(maxDelay);
+
+        committer = new Thread("muid-group-committer") {
+
+            @Override
+            public void run() {
+                commitLoop();
+            }
+        };
+        committer.setDaemon(true);
+        committer.start();
+    }
+
+    /**
+     * @param db
+     *            LevelDB table
+     * @return table whose puts are committed by this GroupCommitter
+     */
+    synchronized Table createTable(final LevelDbHandler db) {
+        return new Table(db, tableCount++);
+    }
+
+    /**
+     * @return future completed when all puts queued before are in LevelDB,
+     *         completed exceptionally if the committer has given up
+     */
+    synchronized CompletableFuture<Void> flush() {
+        if (committed == queued) {
+            return CompletableFuture.completedFuture(null);
+        }
+        if (failure != null) {
+            final CompletableFuture<Void> failed =
+                    new CompletableFuture<Void>();
+            failed.completeExceptionally(failure);
+            return failed;
+        }
+        final Barrier barrier = new Barrier(queued);
+        barriers.add(barrier);
+        flushRequested = true;
+        notifyAll();
+        return barrier.future;
+    }
+
+    /**
+     * Writes all queued puts and stops the committer thread
+     * 
+     * @throws IllegalStateException
+     *             if the committer has given up writing the queued puts
+     */
+    void close() {
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+        try {
+            committer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            if (failure != null) {
+                throw new IllegalStateException((queued - committed)
+                        + " puts could not be written", failure);
+            }
+        }
+    }
+
+    private synchronized void enqueue(final Put put) {
+        if (failure != null) {
+            throw new IllegalStateException(
+                    "GroupCommitter has given up writing", failure);
+        }
+        if (closed) {
+            throw new IllegalStateException("GroupCommitter has been closed");
+        }
+        queue.add(put);
+        queued++;
+        if (queue.size() == 1) {
+            oldest = System.nanoTime();
+            notifyAll();
+        } else if (queue.size() == batchSize) {
+            notifyAll();
+        }
+    }
+
+    private void commitLoop() {
+        while (true) {
+            final List<Put> group;
+            final long sequence;
+            synchronized (this) {
+                try {
+                    waitForGroup();
+                } catch (InterruptedException e) {
+                    // write what is queued
+                    closed = true;
+                }
+                if (queue.isEmpty() && closed) {
+                    return;
+                }
+                group = queue;
+                sequence = queued;
+                queue = new ArrayList<Put>();
+                flushRequested = false;
+            }
+
+            RuntimeException error = null;
+            try {
+                write(group);
+            } catch (RuntimeException e) {
+                error = e;
+            }
+
+            synchronized (this) {
+                if (error == null) {
+                    committed = sequence;
+                    failures = 0;
+                } else {
+                    // retry the group and the puts queued meanwhile
+                    group.addAll(queue);
+                    queue = group;
+                    oldest = System.nanoTime();
+                    if (failures == MAX_RETRIES) {
+                        failure = error;
+                    } else {
+                        retryAt = oldest + getBackoff(failures++);
+                    }
+                }
+                final Iterator<Barrier> waiting = barriers.iterator();
+                while (waiting.hasNext()) {
+                    final Barrier barrier = waiting.next();
+                    if (failure != null) {
+                        barrier.future.completeExceptionally(failure);
+                        waiting.remove();
+                    } else if (barrier.sequence <= committed) {
+                        barrier.future.complete(null);
+                        waiting.remove();
+                    }
+                }
+                if (failure != null) {
+                    // puts stay in the overlay, close() throws the failure
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * @param retry
+     *            number of the retry, starting at 0
+     * @return nanoseconds to wait before the retry
+     */
+    private long getBackoff(final int retry) {
+        long backoff = Math.max(maxDelay, MIN_BACKOFF);
+        for (int i = 0; i < retry && backoff < MAX_BACKOFF; i++) {
+            backoff <<= 1;
+        }
+        return Math.min(backoff, MAX_BACKOFF);
+    }
+
+    /**
+     * waits until a group is due, must hold the lock of this
+     */
+    private void waitForGroup() throws InterruptedException {
+        long backoff;
+        while (failures > 0 && (backoff = retryAt - System.nanoTime()) > 0) {
+            TimeUnit.NANOSECONDS.timedWait(this, backoff);
+        }
+        while (!closed) {
+            if (queue.isEmpty()) {
+                wait();
+            } else if (queue.size() >= batchSize || flushRequested) {
+                return;
+            } else {
+                final long remaining = oldest + maxDelay - System.nanoTime();
+                if (remaining <= 0) {
+                    return;
+                }
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            }
+        }
+    }
+
+    private static void write(final List<Put> group) {
+        Collections.sort(group, KEY_ORDER);
+        for (final Put put : group) {
+            MuidMetrics.recordLevelDbWrite();
+            put.table.db.put(put.key, put.value);
+        }
+        for (final Put put : group) {
+            put.table.overlay.remove(put.key, put.value);
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package de.metalcon.domain.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import de.metalcon.domain.Uid;
+import de.metalcon.domain.helper.UidConverter;
+
+/**
+ * stores one byte payload per Muid in a file below a root directory<br>
+ * <br>
+ * The directory of a Muid is given by a ShardingScheme, the file is named by
+ * the alphanumeric Muid. Payloads are written to a temporary file in the same
+ * directory which is then atomically renamed, so readers never see a partly
+ * written payload. Payloads of at least MAP_THRESHOLD bytes are memory mapped
+ * on load instead of being copied to the heap. Directories known to exist are
+ * remembered so repeated writes to the same directory skip creating it.
+ */
+public class MuidFileStore {
+
+    /**
+     * payloads of at least this many bytes are memory mapped on load
+     */
+    public static final int MAP_THRESHOLD = 1 << 20;
+
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final Path root;
+
+    private final ShardingScheme scheme;
+
+    /**
+     * force written payloads to the disk before they become visible?
+     */
+    private final boolean sync;
+
+    /**
+     * leaf indices of the directories known to exist
+     */
+    private final Set<Long> createdDirectories = ConcurrentHashMap
+            .newKeySet();
+
+    /**
+     * create a store using the layout of Uid.getStoragePath()
+     *
+     * @param root
+     *            directory the payloads are stored in
+     */
+    public MuidFileStore(
+            final Path root) {
+        this(root, ShardingScheme.LEGACY, false);
+    }
+
+    /**
+     * create a store
+     *
+     * @param root
+     *            directory the payloads are stored in
+     * @param scheme
+     *            layout of the directories below root
+     * @param sync
+     *            force written payloads to the disk before they become visible
+     */
+    public MuidFileStore(
+            final Path root,
+            final ShardingScheme scheme,
+            final boolean sync) {
+        this.root = root;
+        this.scheme = scheme;
+        this.sync = sync;
+    }
+
+    /**
+     * @param muid
+     *            Muid value
+     * @return file the payload of the Muid is stored in
+     */
+    public Path getPath(final long muid) {
+        return scheme.resolve(root, muid).resolve(UidConverter.serialize(muid));
+    }
+
+    /**
+     * Stores the payload of a Muid, replacing a previously stored one
+     *
+     * @param uid
+     *            Muid the payload belongs to
+     * @param data
+     *            payload
+     * @throws IOException
+     */
+    public void store(final Uid uid, final byte[] data) throws IOException {
+        store(uid.getValue(), ByteBuffer.wrap(data));
+    }
+
+    /**
+     * Stores the remaining bytes of a buffer as payload of a Muid, replacing a
+     * previously stored one. The position of the buffer is not changed.
+     *
+     * @param muid
+     *            Muid value
+     * @param data
+     *            payload
+     * @throws IOException
+     */
+    public void store(final long muid, final ByteBuffer data)
+            throws IOException {
+        Path directory = getDirectory(muid);
+        final String name = UidConverter.serialize(muid);
+        Path temp;
+        try {
+            temp = Files.createTempFile(directory, name, TEMP_SUFFIX);
+        } catch (NoSuchFileException e) {
+            // the directory has been removed since it was created
+            createdDirectories.remove(scheme.getLeafIndex(muid));
+            directory = getDirectory(muid);
+            temp = Files.createTempFile(directory, name, TEMP_SUFFIX);
+        }
+        try {
+            try (FileChannel channel =
+                    FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                final ByteBuffer src = data.duplicate();
+                while (src.hasRemaining()) {
+                    channel.write(src);
+                }
+                if (sync) {
+                    channel.force(false);
+                }
+            }
+            Files.move(temp, directory.resolve(name),
+                    StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    /**
+     * Loads the payload of a Muid. Large payloads are memory mapped.
+     *
+     * @param uid
+     *            Muid the payload belongs to
+     * @return read-only buffer with the payload or null if there is none
+     * @throws IOException
+     */
+    public ByteBuffer load(final Uid uid) throws IOException {
+        return load(uid.getValue());
+    }
+
+    /**
+     * Loads the payload of a Muid. Large payloads are memory mapped.
+     *
+     * @param muid
+     *            Muid value
+     * @return read-only buffer with the payload or null if there is none
+     * @throws IOException
+     */
+    public ByteBuffer load(final long muid) throws IOException {
+        try (FileChannel channel =
+                FileChannel.open(getPath(muid), StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (size >= MAP_THRESHOLD) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            }
+
+            final ByteBuffer data = ByteBuffer.allocate((int) size);
+            while (data.hasRemaining()) {
+                if (channel.read(data) < 0) {
+                    // file has been truncated while reading
+                    break;
+                }
+            }
+            data.flip();
+            return data.asReadOnlyBuffer();
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @param muid
+     *            Muid value
+     * @return true if a payload is stored for the Muid
+     */
+    public boolean contains(final long muid) {
+        return Files.exists(getPath(muid));
+    }
+
+    /**
+     * Deletes the payload of a Muid
+     *
+     * @param muid
+     *            Muid value
+     * @return true if a payload has been deleted
+     * @throws IOException
+     */
+    public boolean delete(final long muid) throws IOException {
+        return Files.deleteIfExists(getPath(muid));
+    }
+
+    /**
+     * @return directory of the Muid which is created if not known to exist
+     */
+    private Path getDirectory(final long muid) throws IOException {
+        final Path directory = scheme.resolve(root, muid);
+        final Long leaf = scheme.getLeafIndex(muid);
+        if (!createdDirectories.contains(leaf)) {
+            Files.createDirectories(directory);
+            createdDirectories.add(leaf);
+        }
+        return directory;
+    }
+}
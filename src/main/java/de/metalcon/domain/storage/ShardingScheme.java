@@ -0,0 +1,199 @@
+package de.metalcon.domain.storage;
+
+import java.nio.file.Path;
+import java.util.function.LongUnaryOperator;
+
+import de.metalcon.domain.helper.UidConverter;
+
+/**
+ * layout of the directories files belonging to a Muid are stored in<br>
+ * <br>
+ * A Muid is hashed and the hash is split into depth digits of log2(fanout)
+ * bits, least significant digit first. Every digit names one directory level
+ * in lower case hex, zero padded to the same width on each level. The
+ * directory names are computed once, so building a path does not create any
+ * intermediate strings.<br>
+ * LEGACY is the layout of Uid.getStoragePath(): 3 levels of 16 directories
+ * named by the persistent hash.
+ */
+public class ShardingScheme {
+
+    /**
+     * UidConverter.generatePersistentHash (16 bits)
+     */
+    public static final LongUnaryOperator PERSISTENT_HASH =
+            new LongUnaryOperator() {
+
+                @Override
+                public long applyAsLong(final long muid) {
+                    return UidConverter.generatePersistentHash(muid) & 0xFFFF;
+                }
+            };
+
+    /**
+     * UidConverter.generateMixedHash (64 bits)
+     */
+    public static final LongUnaryOperator MIXED_HASH = new LongUnaryOperator() {
+
+        @Override
+        public long applyAsLong(final long muid) {
+            return UidConverter.generateMixedHash(muid);
+        }
+    };
+
+    /**
+     * the layout of Uid.getStoragePath(): [0-9a-f]/[0-9a-f]/[0-9a-f]/
+     */
+    public static final ShardingScheme LEGACY = new ShardingScheme(3, 16,
+            PERSISTENT_HASH, 16);
+
+    private final int depth;
+
+    private final int fanout;
+
+    /**
+     * bits of the hash used per level
+     */
+    private final int bitsPerLevel;
+
+    private final LongUnaryOperator hash;
+
+    /**
+     * directory name of every digit
+     */
+    private final String[] names;
+
+    /**
+     * create a new layout using the 64 bit mixed hash
+     *
+     * @param depth
+     *            number of directory levels
+     * @param fanout
+     *            number of directories per level, a power of two
+     */
+    public ShardingScheme(
+            final int depth,
+            final int fanout) {
+        this(depth, fanout, MIXED_HASH, 64);
+    }
+
+    /**
+     * create a new layout
+     *
+     * @param depth
+     *            number of directory levels
+     * @param fanout
+     *            number of directories per level, a power of two
+     * @param hash
+     *            hash function of the Muids. Must not change as long as
+     *            files are stored with this layout.
+     * @param hashBits
+     *            number of (low) bits of the hash that are significant
+     */
+    public ShardingScheme(
+            final int depth,
+            final int fanout,
+            final LongUnaryOperator hash,
+            final int hashBits) {
+        if (fanout < 2 || Integer.bitCount(fanout) != 1) {
+            throw new IllegalArgumentException(
+                    "Fanout must be a power of two larger than 1: " + fanout);
+        }
+        bitsPerLevel = Integer.numberOfTrailingZeros(fanout);
+        if (depth < 1 || depth * bitsPerLevel > hashBits) {
+            throw new IllegalArgumentException("Depth " + depth
+                    + " needs more than the " + hashBits
+                    + " bits of the hash at fanout " + fanout);
+        }
+        this.depth = depth;
+        this.fanout = fanout;
+        this.hash = hash;
+
+        final char[] folderChars = UidConverter.getAllowedFolderNames();
+        final int width = (bitsPerLevel + 3) / 4;
+        names = new String[fanout];
+        final char[] name = new char[width];
+        for (int digit = 0; digit < fanout; digit++) {
+            for (int i = 0; i < width; i++) {
+                name[i] = folderChars[(digit >>> (4 * (width - 1 - i))) & 15];
+            }
+            names[digit] = new String(name);
+        }
+    }
+
+    /**
+     * @return number of directory levels
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * @return number of directories per level
+     */
+    public int getFanout() {
+        return fanout;
+    }
+
+    /**
+     * @return number of directories on the deepest level
+     */
+    public long getLeafCount() {
+        return 1L << (depth * bitsPerLevel);
+    }
+
+    /**
+     * @param muid
+     *            the Muid to be taken for the path generation
+     * @return index of the deepest directory the Muid is stored in
+     */
+    public long getLeafIndex(final long muid) {
+        return hash.applyAsLong(muid) & (getLeafCount() - 1);
+    }
+
+    /**
+     * Appends the relative path of the directory of the given Muid, e.g.
+     * "3/f/a/"
+     *
+     * @param muid
+     *            the Muid to be taken for the path generation
+     * @param path
+     *            builder the path is appended to
+     * @return path
+     */
+    public StringBuilder appendPath(final long muid, final StringBuilder path) {
+        long digits = hash.applyAsLong(muid);
+        for (int level = 0; level < depth; level++) {
+            path.append(names[(int) digits & (fanout - 1)]).append('/');
+            digits >>>= bitsPerLevel;
+        }
+        return path;
+    }
+
+    /**
+     * @param muid
+     *            the Muid to be taken for the path generation
+     * @return relative path of the directory of the given Muid
+     */
+    public String getPath(final long muid) {
+        return appendPath(muid,
+                new StringBuilder(depth * (names[0].length() + 1))).toString();
+    }
+
+    /**
+     * @param root
+     *            directory the layout starts in
+     * @param muid
+     *            the Muid to be taken for the path generation
+     * @return directory of the given Muid within root
+     */
+    public Path resolve(final Path root, final long muid) {
+        long digits = hash.applyAsLong(muid);
+        Path path = root;
+        for (int level = 0; level < depth; level++) {
+            path = path.resolve(names[(int) digits & (fanout - 1)]);
+            digits >>>= bitsPerLevel;
+        }
+        return path;
+    }
+}
@@ -0,0 +1,129 @@
+package de.metalcon.domain.storage;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import de.metalcon.domain.metrics.MuidMetrics;
+
+/**
+ * bounded cache from URLs to their UrlIDs with least recently used eviction<br>
+ * <br>
+ * The cache is split into segments by the hash of the URL. Every segment is
+ * an access ordered LinkedHashMap guarded by its own lock, so threads looking
+ * up different URLs rarely wait for each other. Only URLs known to be stored
+ * may be put: the UrlID of a stored URL never changes, so a cached UrlID is
+ * never stale. Hits and misses are reported to MuidMetrics.
+ */
+public class UrlIdCache {
+
+    /**
+     * number of segments, a power of two
+     */
+    private static final int SEGMENTS = 16;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+
+    private final int capacity;
+
+    private static class Segment extends LinkedHashMap<String, Long> {
+
+        private static final long serialVersionUID = 7283528371612318547L;
+
+        private final int capacity;
+
+        public Segment(
+                final int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, Long> eldest) {
+            return size() > capacity;
+        }
+    }
+
+    /**
+     * create a new empty cache
+     *
+     * @param capacity
+     *            maximum number of cached URLs (rounded up to a multiple of
+     *            the number of segments)
+     */
+    public UrlIdCache(
+            final int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Cache capacity must be positive: "
+                    + capacity);
+        }
+        final int segmentCapacity = (capacity + SEGMENTS - 1) / SEGMENTS;
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(segmentCapacity);
+        }
+        this.capacity = segmentCapacity * SEGMENTS;
+    }
+
+    /**
+     * @param url
+     *            URL to be looked up
+     * @return UrlID of the URL or 0 if it is not cached
+     */
+    public long get(final String url) {
+        final Segment segment = getSegment(url);
+        final Long urlID;
+        synchronized (segment) {
+            urlID = segment.get(url);
+        }
+        MuidMetrics.recordUrlCacheLookup(urlID != null);
+        return urlID == null ? 0 : urlID;
+    }
+
+    /**
+     * @param url
+     *            URL that is stored
+     * @param urlID
+     *            UrlID the URL is stored with
+     */
+    public void put(final String url, final long urlID) {
+        final Segment segment = getSegment(url);
+        synchronized (segment) {
+            segment.put(url, urlID);
+        }
+    }
+
+    /**
+     * @return number of cached URLs
+     */
+    public int size() {
+        int size = 0;
+        for (final Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return maximum number of cached URLs
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * removes all URLs from the cache
+     */
+    public void clear() {
+        for (final Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    private Segment getSegment(final String url) {
+        final int hash = url.hashCode();
+        return segments[(hash ^ (hash >>> 16)) & (SEGMENTS - 1)];
+    }
+}
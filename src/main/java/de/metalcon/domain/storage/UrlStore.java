@@ -1,16 +1,216 @@
 package de.metalcon.domain.storage;
 
+import java.io.File;
 import java.net.MalformedURLException;
-import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 
 import de.metalcon.dbhelper.LevelDbHandler;
+import de.metalcon.domain.helper.DomainParser;
 import de.metalcon.domain.helper.LongAndBoolean;
 import de.metalcon.domain.helper.UidConverter;
+import de.metalcon.domain.metrics.MuidMetrics;
 import de.metalcon.exceptions.MetalconException;
 
+/**
+ * persistent mapping between URLs and UrlIDs<br>
+ * <br>
+ * The UrlID of a URL is found by probing the UrlIDs following the hash of its
+ * domain and of the URL until the URL or a free UrlID is found. Storing a URL
+ * at a free UrlID locks the stripe of that UrlID only, so URLs of different
+ * probe chains are stored in parallel. UrlIDs are never freed again, which is
+ * why re-checking the UrlID under its lock is enough to keep the mapping
+ * unique, even if the probe chains of different URLs overlap.<br>
+ * Concurrent calls of getOrCreateID for the same URL share a single lookup.<br>
+ * Every stored URL is also indexed by its 64 bit fingerprint: the index value
+ * is the UrlID followed by the URL, so a stored URL is found by one point read
+ * no matter how long its probe chain is. The probe chain is only walked for
+ * new URLs, URLs stored before the index existed (which are indexed then) and
+ * URLs whose fingerprint collides with another URL.<br>
+ * The domainID of a UrlID is the dense ID of its domain in a persistent
+ * DomainDictionary, so different domains never share a fileID space in
+ * stores created with the dictionary. In stores that predate it (see
+ * LEGACY_DOMAIN_IDS_PROPERTY) the hash of a domain used as legacy domainID
+ * may equal the dense ID of another domain, so both share that fileID space
+ * and its probe chains.<br>
+ * Stored URLs are kept in a UrlIdCache of -Dmuid.urlCacheCapacity URLs
+ * (default 65536, 0 disables the cache) so repeated lookups skip parsing and
+ * probing. URLs not stored yet are never cached.<br>
+ * getOrCreateIDs resolves a whole batch of URLs: duplicates are looked up
+ * once, the index is read in the order of the fingerprints and all new URLs
+ * are written in the order of their UrlIDs while the locks of all their
+ * stripes are held (which is not atomic on disk).<br>
+ * With -Dmuid.urlGroupCommit=true new URLs and their index entries are
+ * written behind by a GroupCommitter: they are visible at once but reach
+ * LevelDB in groups of -Dmuid.urlGroupCommitSize puts (default 1024) or
+ * after -Dmuid.urlGroupCommitMillis milliseconds (default 10). flush()
+ * returns a future completed when they have been written.
+ */
 public class UrlStore {
 	private static LevelDbHandler db = null;
 
+	/**
+	 * fingerprint of a URL to its UrlID and the URL
+	 */
+	private static LevelDbHandler index = null;
+
+	/**
+	 * dense domainIDs of all domains
+	 */
+	private static DomainDictionary domains = null;
+
+	/**
+	 * enables writing new URLs behind
+	 */
+	public static final String GROUP_COMMIT_PROPERTY = "muid.urlGroupCommit";
+
+	/**
+	 * number of queued puts written without waiting
+	 */
+	public static final String GROUP_COMMIT_SIZE_PROPERTY =
+			"muid.urlGroupCommitSize";
+
+	/**
+	 * maximum time in milliseconds a put is queued
+	 */
+	public static final String GROUP_COMMIT_MILLIS_PROPERTY =
+			"muid.urlGroupCommitMillis";
+
+	/**
+	 * writes new URLs behind, null if disabled
+	 */
+	private static GroupCommitter committer = null;
+
+	private static GroupCommitter.Table urlTable = null;
+
+	private static GroupCommitter.Table indexTable = null;
+
+	/**
+	 * forces looking up urls by the hash of their domain (true) or not
+	 * (false), see legacyDomainIds
+	 */
+	public static final String LEGACY_DOMAIN_IDS_PROPERTY =
+			"muid.legacyDomainIds";
+
+	/**
+	 * key of the domains table remembering legacyDomainIds, outside of the
+	 * domainIDs
+	 */
+	private static final long LEGACY_DOMAIN_IDS_KEY = -1;
+
+	/**
+	 * Look up urls by the hash of their domain if they are not found by the
+	 * domainID of the dictionary? Needed for stores filled before the domain
+	 * dictionary existed only: enabled if the database already existed when
+	 * the dictionary was empty. The decision is stored with the dictionary.
+	 */
+	private static boolean legacyDomainIds = false;
+
+	/**
+	 * length of the alphanumeric UrlID at the start of an index value
+	 */
+	private static final int ID_LENGTH = 11;
+
+	/**
+	 * result of a lookup
+	 */
+	private static class UrlLookup extends LongAndBoolean {
+
+		/**
+		 * the URL looked up
+		 */
+		final String url;
+
+		/**
+		 * fingerprint of the URL
+		 */
+		final long fingerprint;
+
+		/**
+		 * is the URL indexed by its fingerprint?
+		 */
+		boolean indexed;
+
+		/**
+		 * number of UrlIDs of other URLs read in the probe chain
+		 */
+		int probeLength;
+
+		/**
+		 * index of the URL within a batch
+		 */
+		int position;
+
+		/**
+		 * host of the URL, null if not parsed yet
+		 */
+		String host;
+
+		UrlLookup(final String url) {
+			this.url = url;
+			fingerprint = UidConverter.generateUrlFingerprint(url);
+		}
+	}
+
+	/**
+	 * orders lookups by the fingerprint of their URL
+	 */
+	private static final Comparator<UrlLookup> FINGERPRINT_ORDER =
+			new Comparator<UrlLookup>() {
+
+				@Override
+				public int compare(final UrlLookup a, final UrlLookup b) {
+					return Long.compare(a.fingerprint, b.fingerprint);
+				}
+			};
+
+	/**
+	 * orders lookups by their UrlID
+	 */
+	private static final Comparator<UrlLookup> URL_ID_ORDER =
+			new Comparator<UrlLookup>() {
+
+				@Override
+				public int compare(final UrlLookup a, final UrlLookup b) {
+					return Long.compare(a.l, b.l);
+				}
+			};
+
+	/**
+	 * maximum number of cached URLs, 0 to disable the cache
+	 */
+	public static final String CACHE_CAPACITY_PROPERTY = "muid.urlCacheCapacity";
+
+	private static final UrlIdCache cache;
+
+	/**
+	 * number of locks guarding the free UrlIDs, a power of two
+	 */
+	private static final int STRIPES = 64;
+
+	private static final Object[] locks = new Object[STRIPES];
+
+	/**
+	 * lookups of getOrCreateID currently running by their URL
+	 */
+	private static final ConcurrentHashMap<String, CompletableFuture<Long>> inFlight =
+			new ConcurrentHashMap<String, CompletableFuture<Long>>();
+
+	/**
+	 * overrides URL_DB_PATH of the config file if set, e.g. to run tests or
+	 * benchmarks against a temporary directory
+	 */
+	public static final String DB_PATH_PROPERTY = "muid.urlDbPath";
+
 	/**
 	 * @param dbDir
 	 *            Path to the directory where the Url mappings should be stored.
@@ -18,9 +218,59 @@ public class UrlStore {
 	 * @throws MetalconException
 	 */
 	static {
+		for (int i = 0; i < STRIPES; i++) {
+			locks[i] = new Object();
+		}
+
+		final int cacheCapacity = Integer.getInteger(CACHE_CAPACITY_PROPERTY,
+				1 << 16);
+		cache = cacheCapacity > 0 ? new UrlIdCache(cacheCapacity) : null;
+
 		try {
-			LevelDbHandler.initialize(DbOptions.URL_DB_PATH);
+			String dbPath = System.getProperty(DB_PATH_PROPERTY);
+			if (dbPath == null) {
+				dbPath = DbOptions.URL_DB_PATH;
+			}
+			final String[] existing = new File(dbPath).list();
+			LevelDbHandler.initialize(dbPath);
 			db = new LevelDbHandler("URLStore");
+			index = new LevelDbHandler("URLIndex");
+			final LevelDbHandler domainTable = new LevelDbHandler("URLDomains");
+			domains = new DomainDictionary(domainTable);
+
+			final String stored = domainTable.getString(LEGACY_DOMAIN_IDS_KEY);
+			boolean legacy;
+			if (stored != null) {
+				legacy = Boolean.parseBoolean(stored);
+			} else {
+				/*
+				 * A database existing before the dictionary was filled may
+				 * hold urls of legacy domainIDs. Dictionaries filled before
+				 * the decision was stored may belong to upgraded stores.
+				 */
+				legacy = domains.size() > 0 || existing != null
+						&& existing.length > 0;
+				domainTable.put(LEGACY_DOMAIN_IDS_KEY, Boolean.toString(legacy));
+			}
+			final String forced =
+					System.getProperty(LEGACY_DOMAIN_IDS_PROPERTY);
+			legacyDomainIds = forced != null ? Boolean.parseBoolean(forced)
+					: legacy;
+
+			if (Boolean.getBoolean(GROUP_COMMIT_PROPERTY)) {
+				committer = new GroupCommitter(Integer.getInteger(
+						GROUP_COMMIT_SIZE_PROPERTY, 1024), Long.getLong(
+						GROUP_COMMIT_MILLIS_PROPERTY, 10));
+				urlTable = committer.createTable(db);
+				indexTable = committer.createTable(index);
+				Runtime.getRuntime().addShutdownHook(new Thread() {
+
+					@Override
+					public void run() {
+						committer.close();
+					}
+				});
+			}
 		} catch (MetalconException e) {
 			e.printStackTrace();
 			System.exit(1);
@@ -29,53 +279,435 @@ public class UrlStore {
 
 	/**
 	 * Generates a new UrlID or returns the corresponding one if it already
-	 * exists. The boolean in the return value tells you if the url was already
-	 * stored.
+	 * exists. If the same URL is already being looked up by another thread
+	 * its result is awaited instead.
 	 * 
 	 * @param url
 	 * @throws MalformedURLException
 	 */
-	public static synchronized long getOrCreateID(final String url)
+	public static long getOrCreateID(final String url)
 			throws MalformedURLException {
-		LongAndBoolean lab = getOrCalculateID(url);
-		if (!lab.b) {
-			storeURL(lab.l, url);
+		if (cache != null) {
+			final long urlID = cache.get(url);
+			if (urlID != 0) {
+				return urlID;
+			}
 		}
-		return lab.l;
+
+		final CompletableFuture<Long> lookup = new CompletableFuture<Long>();
+		final CompletableFuture<Long> running = inFlight.putIfAbsent(url,
+				lookup);
+		if (running != null) {
+			return await(running);
+		}
+
+		try {
+			final long start = System.nanoTime();
+			final UrlLookup lab = getOrStoreID(url);
+			MuidMetrics.recordUrlLookup(System.nanoTime() - start,
+					lab.probeLength, !lab.b);
+			if (cache != null) {
+				cache.put(url, lab.l);
+			}
+			lookup.complete(lab.l);
+			return lab.l;
+		} catch (MalformedURLException | RuntimeException e) {
+			lookup.completeExceptionally(e);
+			throw e;
+		} finally {
+			inFlight.remove(url, lookup);
+		}
+	}
+
+	/**
+	 * @return UrlID found by a lookup of another thread
+	 */
+	private static long await(final CompletableFuture<Long> lookup)
+			throws MalformedURLException {
+		try {
+			return lookup.join();
+		} catch (CompletionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof MalformedURLException) {
+				throw (MalformedURLException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Generates new UrlIDs or returns the corresponding ones for a batch of
+	 * URLs, e.g. all links of a page. Each distinct URL is looked up once. If
+	 * one of the URLs is malformed nothing is stored, not even the domains of
+	 * the other URLs.<br>
+	 * The new URLs are stored while no other thread can store a URL at their
+	 * UrlIDs, but they are written to LevelDB one by one: the batch is not
+	 * atomic on disk. A crash may leave some URLs of the batch stored and
+	 * others not, or URLs without their index entry, which is added again
+	 * when the URL is looked up the next time.
+	 * 
+	 * @param urls
+	 *            full URLs including the protocol
+	 * @return the UrlIDs of the URLs in the order of the collection
+	 * @throws MalformedURLException
+	 */
+	public static long[] getOrCreateIDs(final Collection<String> urls)
+			throws MalformedURLException {
+		final String[] batch = urls.toArray(new String[urls.size()]);
+		final long[] urlIDs = new long[batch.length];
+
+		// position of the first occurrence of every URL
+		final int[] first = new int[batch.length];
+		final Map<String, Integer> positions = new HashMap<String, Integer>();
+		final List<UrlLookup> lookups = new ArrayList<UrlLookup>();
+		for (int i = 0; i < batch.length; i++) {
+			final Integer position = positions.get(batch[i]);
+			if (position != null) {
+				first[i] = position;
+				continue;
+			}
+			positions.put(batch[i], i);
+			first[i] = i;
+			if (cache != null) {
+				urlIDs[i] = cache.get(batch[i]);
+			}
+			if (urlIDs[i] == 0) {
+				final UrlLookup lab = new UrlLookup(batch[i]);
+				lab.position = i;
+				lookups.add(lab);
+			}
+		}
+
+		if (!lookups.isEmpty()) {
+			final long start = System.nanoTime();
+
+			// fail on malformed urls before any domain is created
+			for (final UrlLookup lab : lookups) {
+				lab.host = DomainParser.getHost(lab.url);
+			}
+
+			// read the index in key order
+			Collections.sort(lookups, FINGERPRINT_ORDER);
+			final List<UrlLookup> created = new ArrayList<UrlLookup>();
+			for (final UrlLookup lab : lookups) {
+				calculateID(lab, true);
+				if (!lab.b) {
+					created.add(lab);
+				}
+			}
+
+			if (!created.isEmpty()) {
+				Collections.sort(created, URL_ID_ORDER);
+				final boolean[] stripes = new boolean[STRIPES];
+				for (final UrlLookup lab : created) {
+					stripes[getStripe(lab.l)] = true;
+				}
+				final List<UrlLookup> taken = new ArrayList<UrlLookup>();
+				storeLocked(created, stripes, 0, taken);
+
+				// lost their UrlID since they were probed
+				for (final UrlLookup lab : taken) {
+					store(lab);
+				}
+			}
+
+			final long nanos = (System.nanoTime() - start) / lookups.size();
+			for (final UrlLookup lab : lookups) {
+				MuidMetrics.recordUrlLookup(nanos, lab.probeLength, !lab.b);
+				if (cache != null) {
+					cache.put(lab.url, lab.l);
+				}
+				urlIDs[lab.position] = lab.l;
+			}
+		}
+
+		for (int i = 0; i < batch.length; i++) {
+			urlIDs[i] = urlIDs[first[i]];
+		}
+		return urlIDs;
+	}
+
+	/**
+	 * Acquires the locks of the marked stripes in ascending order, so batches
+	 * can not deadlock each other, and stores the new urls of a batch
+	 * 
+	 * @param created
+	 *            lookups of the new urls ordered by UrlID
+	 * @param stripes
+	 *            stripes of the UrlIDs of the new urls
+	 * @param stripe
+	 *            first stripe not locked yet
+	 * @param taken
+	 *            receives the lookups whose UrlID has been taken by another
+	 *            url
+	 */
+	private static void storeLocked(final List<UrlLookup> created,
+			final boolean[] stripes, final int stripe,
+			final List<UrlLookup> taken) {
+		if (stripe == STRIPES) {
+			storeAll(created, taken);
+		} else if (!stripes[stripe]) {
+			storeLocked(created, stripes, stripe + 1, taken);
+		} else {
+			synchronized (locks[stripe]) {
+				storeLocked(created, stripes, stripe + 1, taken);
+			}
+		}
+	}
+
+	/**
+	 * Stores the new urls of a batch in the order of their UrlIDs and indexes
+	 * them in the order of their fingerprints. Must hold the locks of all
+	 * their UrlIDs.
+	 */
+	private static void storeAll(final List<UrlLookup> created,
+			final List<UrlLookup> taken) {
+		final List<UrlLookup> free = new ArrayList<UrlLookup>(created.size());
+		long previous = 0;
+		for (final UrlLookup lab : created) {
+			if (!free.isEmpty() && lab.l == previous) {
+				// same probe chain as the previous url of the batch
+				taken.add(lab);
+				continue;
+			}
+			final String storedUrl = getUrl(lab.l);
+			if (storedUrl == null) {
+				free.add(lab);
+				previous = lab.l;
+			} else if (storedUrl.equals(lab.url)) {
+				lab.b = true;
+			} else {
+				taken.add(lab);
+			}
+		}
+
+		for (final UrlLookup lab : free) {
+			storeURL(lab.l, lab.url);
+		}
+		Collections.sort(free, FINGERPRINT_ORDER);
+		for (final UrlLookup lab : free) {
+			if (!lab.indexed) {
+				storeIndex(lab.fingerprint, lab.l, lab.url);
+				lab.indexed = true;
+			}
+		}
+	}
+
+	/**
+	 * Seeks the UrlID associated to the given url and stores the url at a new
+	 * free UrlID if there is none
+	 * 
+	 * @param url
+	 *            The url to be searched for
+	 * @return UrlID of the url and true if it has already been stored
+	 * @throws MalformedURLException
+	 */
+	private static UrlLookup getOrStoreID(final String url)
+			throws MalformedURLException {
+		final UrlLookup lab = getOrCalculateID(url, true);
+		store(lab);
+		return lab;
+	}
+
+	/**
+	 * Stores the url of a lookup at the free UrlID found or, if it has been
+	 * taken since, at the next free UrlID of its probe chain
+	 * 
+	 * @param lab
+	 *            lookup of the url, unchanged if the url is already stored
+	 */
+	private static void store(final UrlLookup lab) {
+		while (!lab.b) {
+			synchronized (locks[getStripe(lab.l)]) {
+				final String storedUrl = getUrl(lab.l);
+				if (storedUrl == null) {
+					storeURL(lab.l, lab.url);
+					if (!lab.indexed) {
+						storeIndex(lab.fingerprint, lab.l, lab.url);
+						lab.indexed = true;
+					}
+					return;
+				}
+				if (storedUrl.equals(lab.url)) {
+					lab.b = true;
+					return;
+				}
+			}
+
+			// taken by another url since it was probed: continue behind it
+			lab.probeLength++;
+			probe(lab.url, UidConverter.getDomainID(lab.l),
+					UidConverter.getFileID(lab.l) + 1, lab);
+		}
+	}
+
+	/**
+	 * @return stripe of the lock guarding the given UrlID
+	 */
+	private static int getStripe(final long urlID) {
+		return (int) UidConverter.generateMixedHash(urlID) & (STRIPES - 1);
 	}
 
 	/**
 	 * Seeks the UrlID associated to the given url or returns a new free one
 	 * 
-	 * This should be called synchronized if the result should be used to create
-	 * a new UrlID
+	 * The free UrlID must be re-checked under its lock before the url is
+	 * stored there
 	 * 
 	 * @param url
 	 *            The url to be searched for
+	 * @param create
+	 *            add the domain of the url to the domain dictionary if it is
+	 *            not known yet
 	 * @throws MalformedURLException
 	 */
-	private static LongAndBoolean getOrCalculateID(final String url)
+	private static UrlLookup getOrCalculateID(final String url,
+			final boolean create) throws MalformedURLException {
+		final UrlLookup lab = new UrlLookup(url);
+		calculateID(lab, create);
+		return lab;
+	}
+
+	/**
+	 * Seeks the UrlID associated to the url of the given lookup or a new free
+	 * one, see getOrCalculateID
+	 */
+	private static void calculateID(final UrlLookup lab, final boolean create)
 			throws MalformedURLException {
+		final String url = lab.url;
+		final String indexed = getIndexed(lab.fingerprint);
+		if (indexed != null) {
+			if (indexed.length() == ID_LENGTH + url.length()
+					&& indexed.startsWith(url, ID_LENGTH)) {
+				lab.l = UidConverter.deserialize(indexed, 0);
+				lab.b = true;
+				lab.indexed = true;
+				return;
+			}
+			// fingerprint taken by another url: this one can not be indexed
+			lab.indexed = true;
+		}
 
-		URL uri = new URL(url);
 		/*
-		 * We only need the domain without any subdomain
+		 * We only need the registrable domain without any subdomain
 		 */
-		String domain = uri.getHost();
-		String[] split = domain.split("\\.");
-		if (split.length > 2) {
-			domain = split[split.length - 2] + "." + split[split.length - 1];
+		if (lab.host == null) {
+			lab.host = DomainParser.getHost(url);
 		}
+		final String host = lab.host;
+		final String domain = DomainParser.getRegistrableDomain(host);
 
 		/*
 		 * Check if the url is already stored by generating the ID and checking
 		 * if the URL is already stored associated to the ID as key
 		 */
 
-		short domainID = (short) domain.hashCode();
-		int fileID = url.hashCode();
+		final int domainID = create ? domains.getOrCreateID(domain) : domains
+				.getID(domain);
+		if (domainID >= 0) {
+			probe(url, (short) domainID, url.hashCode(), lab);
+		}
+
+		/*
+		 * Urls stored before the domain dictionary existed use the hash of
+		 * their domain as domainID. It is also used if the dictionary is full.
+		 */
+		if (!lab.b && (legacyDomainIds || domainID < 0
+				&& domains.size() == DomainDictionary.CAPACITY)) {
+			final short legacyID = (short) DomainParser.getLegacyDomain(host)
+					.hashCode();
+			if (domainID < 0 || legacyID != (short) domainID) {
+				final long free = lab.l;
+				probe(url, legacyID, url.hashCode(), lab);
+				if (!lab.b && domainID >= 0) {
+					lab.l = free;
+				}
+			}
+		}
 
-		LongAndBoolean lab = new LongAndBoolean();
+		if (lab.b && !lab.indexed) {
+			// stored before the index existed
+			storeIndex(lab.fingerprint, lab.l, url);
+			lab.indexed = true;
+		}
+	}
+
+	/**
+	 * @param domainID
+	 *            domainID of a UrlID
+	 * @return the domain or null if the domainID is not in the domain
+	 *         dictionary. Always null in stores that predate the dictionary,
+	 *         as a legacy domainID may equal the ID of another domain: use
+	 *         getDomainOfUrlID there. The same holds for the domainIDs of
+	 *         domains added after the dictionary is full.
+	 */
+	public static String getDomain(final short domainID) {
+		if (legacyDomainIds) {
+			return null;
+		}
+		return domains.getDomain(domainID);
+	}
+
+	/**
+	 * @param urlID
+	 *            a UrlID
+	 * @return the domain of the UrlID or null if its domainID is not in the
+	 *         domain dictionary or has been derived from the hash of the
+	 *         domain. In stores that predate the dictionary or whose
+	 *         dictionary is full null as well if the UrlID is not stored.
+	 */
+	public static String getDomainOfUrlID(final long urlID) {
+		final String domain =
+				domains.getDomain(UidConverter.getDomainID(urlID));
+		if (domain == null || !legacyDomainIds
+				&& domains.size() < DomainDictionary.CAPACITY) {
+			return domain;
+		}
+
+		// a legacy domainID may equal the ID of another domain
+		final String url = getUrl(urlID);
+		if (url == null) {
+			return null;
+		}
+		try {
+			return domain.equals(DomainParser
+					.getRegistrableDomain(DomainParser.getHost(url))) ? domain
+					: null;
+		} catch (MalformedURLException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Overrides the decision whether urls are also looked up by their legacy
+	 * domainID, for tests
+	 * 
+	 * @param legacy
+	 *            look up urls by the hash of their domain?
+	 */
+	static void setLegacyDomainIds(final boolean legacy) {
+		legacyDomainIds = legacy;
+	}
+
+	/**
+	 * Walks the probe chain of the given url starting at the given UrlID
+	 * until the url or a free UrlID is found
+	 * 
+	 * @param url
+	 *            The url to be searched for
+	 * @param domainID
+	 *            domain of the url
+	 * @param fileID
+	 *            first fileID to be checked
+	 * @param lab
+	 *            receives the UrlID of the url and true if it is stored,
+	 *            otherwise a free UrlID and false
+	 */
+	private static void probe(final String url, final short domainID,
+			int fileID, final UrlLookup lab) {
 		while (true) {
 			lab.l = UidConverter
 					.calculateUrlIdWithoutChecking(domainID, fileID);
@@ -85,8 +717,9 @@ public class UrlStore {
 				// and is it really the same url and not a subdomain?
 				if (storedUrl.equals(url)) {
 					lab.b = true;
-					return lab;
+					return;
 				} else {
+					lab.probeLength++;
 					fileID++;
 					// now try again
 				}
@@ -96,7 +729,7 @@ public class UrlStore {
 				 * urlID is now a new unique ID so let's store it
 				 */
 				lab.b = false;
-				return lab;
+				return;
 			}
 		}
 	}
@@ -114,13 +747,31 @@ public class UrlStore {
 	 */
 	public static long getStoredUrlID(final String url)
 			throws MalformedURLException {
-		LongAndBoolean lab = getOrCalculateID(url);
+		if (cache != null) {
+			final long urlID = cache.get(url);
+			if (urlID != 0) {
+				return urlID;
+			}
+		}
+
+		UrlLookup lab = getOrCalculateID(url, false);
 		if (!lab.b) {
+			// not stored yet: must not be cached
 			return 0;
 		}
+		if (cache != null) {
+			cache.put(url, lab.l);
+		}
 		return lab.l;
 	}
 
+	/**
+	 * @return cache of stored URLs or null if it is disabled
+	 */
+	public static UrlIdCache getCache() {
+		return cache;
+	}
+
 	/**
 	 * Returns the complete URL stored associated with the given UrlID
 	 * 
@@ -130,9 +781,39 @@ public class UrlStore {
 	 * @return
 	 */
 	public static String getUrl(final long urlID) {
+		if (urlTable != null) {
+			// counts reads reaching LevelDB only
+			return urlTable.getString(urlID);
+		}
+		MuidMetrics.recordLevelDbRead();
 		return db.getString(urlID);
 	}
 
+	/**
+	 * Returns the complete URLs stored associated with the given UrlIDs. The
+	 * UrlIDs are read in ascending order and each distinct UrlID once.
+	 * 
+	 * @param urlIDs
+	 *            UrlIDs to be looked up
+	 * @return the URLs in the order of the UrlIDs, null for UrlIDs that do
+	 *         not yet exist
+	 */
+	public static String[] getUrls(final long[] urlIDs) {
+		final long[] keys = urlIDs.clone();
+		Arrays.sort(keys);
+		final String[] values = new String[keys.length];
+		for (int i = 0; i < keys.length; i++) {
+			values[i] = i > 0 && keys[i] == keys[i - 1] ? values[i - 1]
+					: getUrl(keys[i]);
+		}
+
+		final String[] urls = new String[urlIDs.length];
+		for (int i = 0; i < urlIDs.length; i++) {
+			urls[i] = values[Arrays.binarySearch(keys, urlIDs[i])];
+		}
+		return urls;
+	}
+
 	/**
 	 * Returns the complete URL stored associated with the given UrlID
 	 * 
@@ -142,16 +823,74 @@ public class UrlStore {
 	 * @return
 	 */
 	private static void storeURL(final long urlID, final String url) {
+		if (urlTable != null) {
+			urlTable.put(urlID, url);
+			return;
+		}
+		MuidMetrics.recordLevelDbWrite();
 		db.put(urlID, url);
 	}
 
+	/**
+	 * @param fingerprint
+	 *            fingerprint of a url
+	 * @return the UrlID and the url indexed by the fingerprint or null
+	 */
+	private static String getIndexed(final long fingerprint) {
+		if (indexTable != null) {
+			// counts reads reaching LevelDB only
+			return indexTable.getString(fingerprint);
+		}
+		MuidMetrics.recordLevelDbRead();
+		return index.getString(fingerprint);
+	}
+
+	/**
+	 * Indexes a stored url by its fingerprint
+	 * 
+	 * @param fingerprint
+	 *            fingerprint of the url
+	 * @param urlID
+	 *            UrlID the url is stored with
+	 * @param url
+	 *            the url
+	 */
+	private static void storeIndex(final long fingerprint, final long urlID,
+			final String url) {
+		final String value = UidConverter.serialize(urlID) + url;
+		if (indexTable != null) {
+			indexTable.put(fingerprint, value);
+			return;
+		}
+		MuidMetrics.recordLevelDbWrite();
+		index.put(fingerprint, value);
+	}
+
+	/**
+	 * Writes the URLs stored so far to LevelDB if they are written behind
+	 * (see GROUP_COMMIT_PROPERTY)
+	 * 
+	 * @return future completed when all URLs stored before the call are in
+	 *         LevelDB, completed exceptionally if they can not be written
+	 */
+	public static CompletableFuture<Void> flush() {
+		if (committer == null) {
+			return CompletableFuture.completedFuture(null);
+		}
+		return committer.flush();
+	}
+
 	/**
 	 * Checks if the given domain is already stored in the DB
 	 * 
 	 * @param domainID
 	 *            The domain to be checked
+	 * @deprecated domains are stored in the domain dictionary, see
+	 *             getDomain(short)
 	 */
+	@Deprecated
 	public static void storeDomain(final short domainID) {
+		MuidMetrics.recordLevelDbWrite();
 		db.put(domainID, true);
 	}
 }
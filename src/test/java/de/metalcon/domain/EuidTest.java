@@ -2,6 +2,14 @@ package de.metalcon.domain;
 
 import java.io.File;
 import java.net.MalformedURLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
 
 import junit.framework.Assert;
 
@@ -52,4 +60,108 @@ public class EuidTest {
 		long time = System.currentTimeMillis() - start;
 		System.out.println(time / 1000.);
 	}
+
+	@Test
+	public void concurrentCreateTest() throws Exception {
+		/*
+		 * "Aa" and "BB" have the same hash code so all these urls share one
+		 * probe chain which is crossed by the chains of their neighbours
+		 */
+		final List<String> urls = new ArrayList<String>();
+		for (int i = 0; i < 1 << 6; i++) {
+			StringBuilder url = new StringBuilder("http://collide.metalcon.de/");
+			for (int bit = 0; bit < 6; bit++) {
+				url.append((i & (1 << bit)) == 0 ? "Aa" : "BB");
+			}
+			urls.add(url.toString());
+			urls.add(url.append('x').toString());
+		}
+		for (int i = 0; i < 500; i++) {
+			urls.add("http://concurrent.metalcon.de/" + i);
+		}
+
+		final int threads = 16;
+		final long[][] ids = new long[threads][urls.size()];
+		final CountDownLatch start = new CountDownLatch(1);
+		final List<Thread> workers = new ArrayList<Thread>();
+		final List<Throwable> failures = Collections
+				.synchronizedList(new ArrayList<Throwable>());
+		for (int t = 0; t < threads; t++) {
+			final int thread = t;
+			Thread worker = new Thread() {
+
+				@Override
+				public void run() {
+					try {
+						start.await();
+						List<Integer> order = new ArrayList<Integer>();
+						for (int i = 0; i < urls.size(); i++) {
+							order.add(i);
+						}
+						Collections.shuffle(order, new Random(thread));
+						for (int i : order) {
+							ids[thread][i] = UrlStore.getOrCreateID(urls.get(i));
+						}
+					} catch (Throwable e) {
+						failures.add(e);
+					}
+				}
+			};
+			worker.start();
+			workers.add(worker);
+		}
+		start.countDown();
+		for (Thread worker : workers) {
+			worker.join();
+		}
+		Assert.assertTrue(failures.toString(), failures.isEmpty());
+
+		Set<Long> unique = new HashSet<Long>();
+		for (int i = 0; i < urls.size(); i++) {
+			for (int t = 1; t < threads; t++) {
+				Assert.assertEquals(ids[0][i], ids[t][i]);
+			}
+			Assert.assertTrue(unique.add(ids[0][i]));
+			Assert.assertEquals(urls.get(i), UrlStore.getUrl(ids[0][i]));
+		}
+	}
+
+	@Test
+	public void batchTest() throws Exception {
+		final String stored = "http://batch.metalcon.de/stored";
+		final long storedID = UrlStore.getOrCreateID(stored);
+
+		final List<String> urls = new ArrayList<String>();
+		for (int i = 0; i < 200; i++) {
+			urls.add("http://batch.metalcon.de/" + i);
+			if (i % 10 == 0) {
+				// in-batch duplicates and an already stored url
+				urls.add("http://batch.metalcon.de/0");
+				urls.add(stored);
+			}
+		}
+		// urls sharing a probe chain
+		urls.add("http://batch.metalcon.de/Aa");
+		urls.add("http://batch.metalcon.de/BB");
+
+		final long[] ids = UrlStore.getOrCreateIDs(urls);
+		Assert.assertEquals(urls.size(), ids.length);
+		Set<Long> unique = new HashSet<Long>();
+		for (int i = 0; i < urls.size(); i++) {
+			Assert.assertEquals(UrlStore.getStoredUrlID(urls.get(i)), ids[i]);
+			Assert.assertEquals(urls.get(i), UrlStore.getUrl(ids[i]));
+			unique.add(ids[i]);
+		}
+		Assert.assertEquals(203, unique.size());
+		Assert.assertEquals(storedID, ids[2]);
+
+		// stored urls are found again
+		Assert.assertTrue(Arrays.equals(ids, UrlStore.getOrCreateIDs(urls)));
+
+		Assert.assertTrue(Arrays.equals(urls.toArray(new String[0]),
+				UrlStore.getUrls(ids)));
+		Assert.assertNull(UrlStore.getUrls(new long[] {
+			0
+		})[0]);
+	}
 }
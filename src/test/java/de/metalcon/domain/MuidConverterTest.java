@@ -5,8 +5,9 @@ package de.metalcon.domain;
 
 import static org.junit.Assert.assertEquals;
 
-import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Random;
 
 import junit.framework.Assert;
@@ -145,13 +146,7 @@ public class MuidConverterTest {
 		 */
 		ArrayList<String> muids = new ArrayList<String>();
 		for (int i = 0; i != iterations; i++) {
-			String muid;
-			do {
-				muid = BigInteger.valueOf(rng.nextLong()).abs().toString(32)
-						.substring(2);
-			} while (muid.length() < 11);
-			muid = muid.substring(0, 11);
-			muids.add(muid);
+			muids.add(UidConverter.serialize(rng.nextLong() & Long.MAX_VALUE));
 		}
 
 		start = System.currentTimeMillis();
@@ -164,6 +159,92 @@ public class MuidConverterTest {
 				+ "ns per MUID deserialization");
 	}
 
+	@Test
+	public void bufferTest() {
+		Random rng = new Random();
+		char[] chars = new char[20];
+		byte[] bytes = new byte[20];
+		ByteBuffer buffer = ByteBuffer.allocateDirect(20);
+		for (int i = 0; i < 1000; i++) {
+			long muid = rng.nextLong();
+			int offset = rng.nextInt(20 - UidConverter.getMuidLength() + 1);
+			String muidString = UidConverter.serialize(muid);
+
+			UidConverter.serialize(muid, chars, offset);
+			UidConverter.serialize(muid, bytes, offset);
+			UidConverter.serialize(muid, buffer, offset);
+			assertEquals(muidString, new String(chars, offset,
+					UidConverter.getMuidLength()));
+			assertEquals(muidString, new String(bytes, offset,
+					UidConverter.getMuidLength()));
+
+			assertEquals(muid, UidConverter.deserialize(muidString));
+			assertEquals(muid, UidConverter.deserialize(chars, offset));
+			assertEquals(muid, UidConverter.deserialize(bytes, offset));
+			assertEquals(muid, UidConverter.deserialize(buffer, offset));
+			assertEquals(muid, UidConverter.deserialize(
+					new StringBuilder("xx").append(muidString), 2));
+		}
+	}
+
+	@Test
+	public void bulkTest() {
+		Random rng = new Random();
+		final int n = (int) 1E5;
+		long[] muids = new long[n];
+		for (int i = 0; i != n; i++) {
+			muids[i] = rng.nextLong();
+		}
+		muids[0] = Long.MIN_VALUE;
+		muids[1] = Long.MAX_VALUE;
+		muids[2] = 0;
+
+		byte[] single = new byte[n * UidConverter.getMuidLength()];
+		byte[] bulk = new byte[n * UidConverter.getMuidLength()];
+		long[] parsed = new long[n];
+
+		for (int i = 0; i != n; i++) {
+			UidConverter.serialize(muids[i], single,
+					i * UidConverter.getMuidLength());
+		}
+		UidConverter.serializeAll(muids, bulk);
+		UidConverter.deserializeAll(bulk, parsed);
+		Assert.assertTrue(Arrays.equals(single, bulk));
+		Assert.assertTrue(Arrays.equals(muids, parsed));
+
+		bulk[5 * UidConverter.getMuidLength() + 3] = '+';
+		try {
+			UidConverter.deserializeAll(bulk, parsed);
+			Assert.fail("Deserialized invalid Muid");
+		} catch (NumberFormatException e) {
+		}
+	}
+
+	@Test
+	public void strictDeserializationTest() {
+		String valid = UidConverter.serialize(Muid.EMPTY_BAND_MUID.getValue());
+		String[] invalid = { "", valid.substring(1), valid + "a",
+				valid.substring(1) + "\u0100", valid.substring(1) + "\u00e4",
+				valid.substring(1) + "+",
+				/*
+				 * last digit does not fit into 64 bits
+				 */
+				valid.substring(0, 10) + UidConverter.DIGITS[16] };
+		for (String muidString : invalid) {
+			try {
+				UidConverter.deserialize(muidString);
+				Assert.fail("Deserialized invalid Muid " + muidString);
+			} catch (NumberFormatException e) {
+			}
+		}
+
+		try {
+			UidConverter.deserialize(valid.toCharArray(), 1);
+			Assert.fail("Deserialized Muid beyond the array");
+		} catch (NumberFormatException e) {
+		}
+	}
+
 	// @Test
 	public void getMUIDStoragePathTest() {
 		for (int i = 0; i < 100; i++) {
@@ -0,0 +1,321 @@
+package de.metalcon.domain;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+
+import com.sun.management.ThreadMXBean;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.metalcon.domain.helper.MonotonicTimeSource;
+import de.metalcon.domain.helper.SystemTimeSource;
+import de.metalcon.domain.helper.TimeSource;
+import de.metalcon.domain.helper.UidConverter;
+import de.metalcon.exceptions.ServiceOverloadedException;
+
+public class MuidGeneratorTest {
+
+    private static final int THREADS = 48;
+
+    private static final int MUIDS_PER_THREAD = 4000;
+
+    /**
+     * time source returning a second set by the test
+     */
+    private static class ManualTimeSource implements TimeSource {
+
+        private volatile long second;
+
+        public ManualTimeSource(
+                final long second) {
+            this.second = second;
+        }
+
+        public void set(final long second) {
+            this.second = second;
+        }
+
+        @Override
+        public long currentSecond() {
+            return second;
+        }
+    }
+
+    @Test
+    public void uniqueAcrossThreadsTest() throws InterruptedException {
+        final MuidGenerator generator = new MuidGenerator((byte) 1);
+        final long[][] created = new long[THREADS][MUIDS_PER_THREAD];
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(THREADS);
+
+        for (int t = 0; t < THREADS; t++) {
+            final long[] muids = created[t];
+            new Thread() {
+
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        int i = 0;
+                        while (i < muids.length) {
+                            try {
+                                muids[i] =
+                                        generator.create(UidType.BAND)
+                                                .getValue();
+                                i++;
+                            } catch (ServiceOverloadedException e) {
+                                /*
+                                 * Second is exhausted: wait for the next one
+                                 */
+                                Thread.sleep(1);
+                            }
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }.start();
+        }
+        start.countDown();
+        done.await();
+
+        long[] all = new long[THREADS * MUIDS_PER_THREAD];
+        for (int t = 0; t < THREADS; t++) {
+            System.arraycopy(created[t], 0, all, t * MUIDS_PER_THREAD,
+                    MUIDS_PER_THREAD);
+        }
+        Arrays.sort(all);
+        for (int i = 0; i < all.length; i++) {
+            Assert.assertTrue("Muid has not been created", all[i] != 0);
+            Assert.assertEquals(UidType.BAND.getRawIdentifier(),
+                    UidConverter.getType(all[i]));
+            Assert.assertEquals(1, UidConverter.getSource(all[i]));
+            if (i > 0 && all[i] == all[i - 1]) {
+                Assert.fail("Muid " + UidConverter.serialize(all[i])
+                        + " has been created twice");
+            }
+        }
+    }
+
+    @Test
+    public void overloadTest() {
+        MuidGenerator generator = new MuidGenerator((byte) 2);
+        try {
+            for (int i = 0; i < 3 * UidConverter.getMaximumMuidID(); i++) {
+                generator.create(UidType.USER);
+            }
+            Assert.fail("Creating more then 0xFFFF MUIDs per second should throw an exception");
+        } catch (ServiceOverloadedException e) {
+        }
+        Assert.assertTrue(generator.getOverloadCount(OverloadPolicy.FAIL) > 0);
+    }
+
+    @Test
+    public void independentTypesTest() throws ServiceOverloadedException {
+        MuidGenerator generator = new MuidGenerator((byte) 3);
+        try {
+            for (int i = 0; i < 3 * UidConverter.getMaximumMuidID(); i++) {
+                generator.create(UidType.IMAGE);
+            }
+            Assert.fail("Creating more then 0xFFFF MUIDs per second should throw an exception");
+        } catch (ServiceOverloadedException e) {
+        }
+
+        /*
+         * Other types still have their full fine time space
+         */
+        for (int i = 0; i < UidConverter.getMaximumMuidID(); i++) {
+            generator.create(UidType.USER);
+        }
+    }
+
+    @Test
+    public void reserveTest() throws ServiceOverloadedException {
+        MuidGenerator generator = new MuidGenerator((byte) 4);
+        long single = generator.create(UidType.TRACK).getValue();
+
+        /*
+         * Blocks larger than the fine time space are split across seconds
+         */
+        long[] block =
+                generator.reserve(UidType.TRACK,
+                        UidConverter.getMaximumMuidID() + 1000);
+        Assert.assertEquals(UidConverter.getMaximumMuidID() + 1000,
+                block.length);
+        Assert.assertTrue(single < block[0]);
+        for (int i = 1; i < block.length; i++) {
+            Assert.assertTrue(block[i - 1] < block[i]);
+        }
+        Assert.assertTrue(UidConverter.getTimestamp(block[0]) < UidConverter
+                .getTimestamp(block[block.length - 1]));
+        Assert.assertEquals(UidType.TRACK.getRawIdentifier(),
+                UidConverter.getType(block[0]));
+        Assert.assertEquals(4, UidConverter.getSource(block[0]));
+
+        Assert.assertEquals(0, generator.reserve(UidType.TRACK, 0).length);
+    }
+
+    @Test
+    public void nextIdAllocationTest() throws ServiceOverloadedException {
+        if (!(ManagementFactory.getThreadMXBean() instanceof ThreadMXBean)) {
+            // allocation counter not available on this JVM
+            return;
+        }
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        MuidGenerator generator = new MuidGenerator((byte) 5);
+        final int iterations = UidConverter.getMaximumMuidID();
+        long last = 0;
+
+        /*
+         * heat up the allocation counter
+         */
+        threads.getThreadAllocatedBytes(threadId);
+        threads.getThreadAllocatedBytes(threadId);
+
+        long allocated = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < iterations; i++) {
+            last = generator.nextId(UidType.GENRE);
+        }
+        allocated = threads.getThreadAllocatedBytes(threadId) - allocated;
+
+        Assert.assertEquals(UidType.GENRE.getRawIdentifier(),
+                UidConverter.getType(last));
+        Assert.assertTrue("nextId must not allocate objects",
+                allocated < iterations);
+    }
+
+    @Test
+    public void waitPolicyTest() throws ServiceOverloadedException {
+        MuidGenerator generator = new MuidGenerator((byte) 6);
+        generator.setOverloadPolicy(OverloadPolicy.WAIT);
+
+        long last = 0;
+        for (int i = 0; i < 2 * (UidConverter.getMaximumMuidID() + 1); i++) {
+            long next = generator.nextId(UidType.VENUE);
+            Assert.assertTrue(last < next);
+            last = next;
+        }
+        Assert.assertTrue(generator.getOverloadCount(OverloadPolicy.WAIT) > 0);
+        Assert.assertEquals(0,
+                generator.getOverloadCount(OverloadPolicy.FAIL));
+        Assert.assertTrue(UidConverter.getTimestamp(last) <= System
+                .currentTimeMillis() / 1000);
+    }
+
+    @Test
+    public void borrowPolicyTest() throws ServiceOverloadedException {
+        MuidGenerator generator = new MuidGenerator((byte) 7);
+        generator.setOverloadPolicy(OverloadPolicy.BORROW);
+        generator.setMaximumBorrowedSeconds(1);
+
+        long first = generator.nextId(UidType.EVENT);
+        long last = first;
+        for (int i = 0; i < 3 * (UidConverter.getMaximumMuidID() + 1); i++) {
+            long next = generator.nextId(UidType.EVENT);
+            Assert.assertTrue(last < next);
+            last = next;
+        }
+        Assert.assertTrue(generator.getOverloadCount(OverloadPolicy.BORROW) > 0);
+        Assert.assertEquals(0,
+                generator.getOverloadCount(OverloadPolicy.FAIL));
+        Assert.assertTrue(UidConverter.getTimestamp(last) <= System
+                .currentTimeMillis() / 1000 + 1);
+    }
+
+    @Test
+    public void clockRegressionTest() throws ServiceOverloadedException {
+        ManualTimeSource clock = new ManualTimeSource(1000);
+        MuidGenerator generator = new MuidGenerator((byte) 8, clock);
+
+        long first = generator.nextId(UidType.CITY);
+        Assert.assertEquals(1000, UidConverter.getTimestamp(first));
+        Assert.assertEquals(0, UidConverter.getFineTime(first));
+
+        /*
+         * The clock steps back: Muids are still created within the latest
+         * second instead of reusing fine times of the older one
+         */
+        clock.set(990);
+        long second = generator.nextId(UidType.CITY);
+        Assert.assertEquals(1000, UidConverter.getTimestamp(second));
+        Assert.assertEquals(1, UidConverter.getFineTime(second));
+
+        clock.set(1001);
+        long third = generator.nextId(UidType.CITY);
+        Assert.assertEquals(1001, UidConverter.getTimestamp(third));
+        Assert.assertEquals(0, UidConverter.getFineTime(third));
+
+        MonotonicTimeSource monotonic = new MonotonicTimeSource(clock);
+        Assert.assertEquals(1001, monotonic.currentSecond());
+        clock.set(500);
+        for (int i = 0; i < 10; i++) {
+            Assert.assertEquals(1001, monotonic.currentSecond());
+        }
+        Assert.assertEquals(1, monotonic.getRegressionCount());
+
+        // caught up and stepped back again
+        clock.set(1002);
+        Assert.assertEquals(1002, monotonic.currentSecond());
+        clock.set(600);
+        Assert.assertEquals(1002, monotonic.currentSecond());
+        Assert.assertEquals(2, monotonic.getRegressionCount());
+    }
+
+    @Test
+    public void waitForClockTest() throws InterruptedException {
+        final ManualTimeSource clock = new ManualTimeSource(2000);
+        final MuidGenerator generator = new MuidGenerator((byte) 9, clock);
+        generator.setOverloadPolicy(OverloadPolicy.WAIT);
+        generator.reserve(UidType.INSTRUMENT,
+                UidConverter.getMaximumMuidID() + 1);
+
+        final long[] created = new long[1];
+        Thread waiting = new Thread() {
+
+            @Override
+            public void run() {
+                try {
+                    created[0] = generator.nextId(UidType.INSTRUMENT);
+                } catch (ServiceOverloadedException e) {
+                }
+            }
+        };
+        waiting.start();
+        waiting.join(100);
+        Assert.assertTrue("Muid created before the clock advanced",
+                waiting.isAlive());
+
+        clock.set(2001);
+        waiting.join();
+        Assert.assertEquals(2001, UidConverter.getTimestamp(created[0]));
+        Assert.assertEquals(0, UidConverter.getFineTime(created[0]));
+    }
+
+    @Test
+    public void setTimeSourceTest() throws ServiceOverloadedException {
+        final MuidGenerator generator =
+                new MuidGenerator((byte) 11, new ManualTimeSource(3000));
+        Assert.assertEquals(3000,
+                UidConverter.getTimestamp(generator.nextId(UidType.BAND)));
+
+        // a lagging time source does not reuse older seconds
+        final ManualTimeSource lagging = new ManualTimeSource(2999);
+        generator.setTimeSource(lagging);
+        Assert.assertSame(lagging, generator.getTimeSource());
+        final long id = generator.nextId(UidType.BAND);
+        Assert.assertEquals(3000, UidConverter.getTimestamp(id));
+        Assert.assertEquals(1, UidConverter.getFineTime(id));
+    }
+
+    @Test
+    public void defaultTimeSourceTest() {
+        Assert.assertTrue(
+                Muid.getGenerator().getTimeSource() instanceof SystemTimeSource);
+    }
+}
@@ -1,9 +1,15 @@
 package de.metalcon.domain;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
 import org.junit.Assert;
 import org.junit.Test;
 
 import de.metalcon.domain.helper.UidConverter;
+import de.metalcon.domain.helper.UnknownMuidException;
 import de.metalcon.exceptions.MetalconRuntimeException;
 import de.metalcon.exceptions.ServiceOverloadedException;
 
@@ -51,4 +57,183 @@ public class MuidTest {
         } catch (ServiceOverloadedException e) {
         }
     }
+
+    @Test
+    public void toStringTest() throws Exception {
+        Muid muid = Muid.create(UidType.GENRE);
+        String muidString = muid.toString();
+        Assert.assertEquals(UidConverter.serialize(muid.getValue()),
+                muidString);
+        Assert.assertSame(muidString, muid.toString());
+
+        /*
+         * The cached string is not serialized
+         */
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(muid);
+        out.close();
+        Muid read =
+                (Muid) new ObjectInputStream(new ByteArrayInputStream(
+                        bytes.toByteArray())).readObject();
+        Assert.assertEquals(muid, read);
+        Assert.assertEquals(muidString, read.toString());
+        Assert.assertFalse(bytes.toString("ISO-8859-1").contains(muidString));
+    }
+
+    @Test
+    public void poolTest() throws ServiceOverloadedException {
+        long[] ids = Muid.reserve(UidType.CITY, 100);
+        Assert.assertNotSame(Muid.createFromID(ids[0]),
+                Muid.createFromID(ids[0]));
+
+        MuidPool pool = new MuidPool(1000);
+        Muid.setPool(pool);
+        try {
+            for (long id : ids) {
+                Muid muid = Muid.createFromID(id);
+                Assert.assertEquals(id, muid.getValue());
+                Assert.assertSame(muid,
+                        Uid.createFromID(UidConverter.serialize(id)));
+            }
+            Assert.assertTrue(pool.getHitCount() >= ids.length / 2);
+            Assert.assertTrue(pool.getHitRatio() > 0);
+
+            Assert.assertSame(Muid.EMPTY_CITY_MUID, Muid
+                    .createFromID(Muid.EMPTY_CITY_MUID.getValue()));
+        } finally {
+            Muid.setPool(null);
+        }
+    }
+
+    @Test
+    public void smallPoolTest() throws ServiceOverloadedException {
+        long[] ids = Muid.reserve(UidType.CITY, 10);
+        for (int capacity = 1; capacity <= 2; capacity++) {
+            MuidPool pool = new MuidPool(capacity);
+            Assert.assertEquals(capacity, pool.getCapacity());
+            for (long id : ids) {
+                Assert.assertNull(pool.get(id));
+                Muid muid = Muid.createFromID(id);
+                pool.put(muid);
+                if (pool.get(id) != muid) {
+                    // slot occupied: admitted on the second miss in a row
+                    Assert.assertNull(pool.get(id));
+                    pool.put(muid);
+                }
+                Assert.assertSame(muid, pool.get(id));
+            }
+        }
+    }
+
+    @Test
+    public void poolAdmissionTest() throws ServiceOverloadedException {
+        long[] ids = Muid.reserve(UidType.CITY, 3);
+        Muid hot = Muid.createFromID(ids[0]);
+        Muid cold = Muid.createFromID(ids[1]);
+        MuidPool pool = new MuidPool(1);
+        pool.put(hot);
+
+        // a hit in between gives the hot Muid a second chance
+        for (int i = 0; i < 10; i++) {
+            Assert.assertNull(pool.get(cold.getValue()));
+            pool.put(cold);
+            Assert.assertSame(hot, pool.get(hot.getValue()));
+        }
+
+        // missing twice in a row takes the slot over
+        for (int i = 0; i < 2; i++) {
+            Assert.assertNull(pool.get(cold.getValue()));
+            pool.put(cold);
+        }
+        Assert.assertSame(cold, pool.get(cold.getValue()));
+
+        // new Muids do not pass the pool
+        pool.clear();
+        Muid.setPool(pool);
+        try {
+            new MuidGenerator((byte) 0).create(UidType.CITY);
+            Assert.assertEquals(0, pool.getHitCount() + pool.getMissCount());
+            Assert.assertNull(pool.get(ids[2]));
+        } finally {
+            Muid.setPool(null);
+        }
+    }
+
+    @Test
+    public void typeLookupTest() {
+        for (UidType type : UidType.values()) {
+            Assert.assertSame(type, UidType.parseShort(type.getRawIdentifier()));
+            Assert.assertSame(type, UidType.parseString(type.getIdentifier()));
+            Assert.assertSame(type, UidType.parseId(UidConverter
+                    .calculateMuidWithoutChecking(type.getRawIdentifier(),
+                            (byte) 0, 1, (short) 0)));
+        }
+        Assert.assertNull(UidType.parseString("bandx"));
+        Assert.assertNull(UidType.parseString(null));
+
+        try {
+            UidType.parseShort((short) UidType.values().length);
+            Assert.fail("Parsed unknown type");
+        } catch (UnknownMuidException e) {
+        }
+    }
+
+    @Test
+    public void typeRegistryTest() throws ServiceOverloadedException {
+        for (UidType type : UidType.values()) {
+            Assert.assertEquals(type.getIdentifier(),
+                    UidTypeRegistry.getIdentifier(type.getRawIdentifier()));
+        }
+
+        try {
+            final short festival = 100;
+            Assert.assertFalse(UidTypeRegistry.isRegistered(festival));
+            UidTypeRegistry.registerAll("festival:100, label:101");
+            // registering the same definition twice is fine
+            UidTypeRegistry.register("festival", festival);
+            Assert.assertTrue(UidTypeRegistry.isRegistered(festival));
+            Assert.assertEquals(festival,
+                    UidTypeRegistry.getRawIdentifier("festival"));
+            Assert.assertEquals(-1, UidTypeRegistry.getRawIdentifier("circus"));
+            Assert.assertTrue(UidConverter.getLargestAllowedType() > 101);
+
+            try {
+                UidTypeRegistry.register("circus",
+                        UidType.BAND.getRawIdentifier());
+                Assert.fail("Registered a type twice");
+            } catch (MetalconRuntimeException e) {
+            }
+            try {
+                UidTypeRegistry.register("festival", (short) 102);
+                Assert.fail("Registered an identifier twice");
+            } catch (MetalconRuntimeException e) {
+            }
+            try {
+                UidTypeRegistry.register("circus", (short) 512);
+                Assert.fail("Registered a type out of range");
+            } catch (MetalconRuntimeException e) {
+            }
+
+            final long id = Muid.getGenerator().nextId(festival);
+            final Uid uid = Uid.createFromID(UidConverter.serialize(id));
+            Assert.assertEquals(festival, uid.getTypeValue());
+            Assert.assertEquals("festival", uid.getTypeIdentifier());
+
+            try {
+                Muid.getGenerator().nextId((short) 103);
+                Assert.fail("Created a Muid of an unknown type");
+            } catch (MetalconRuntimeException e) {
+            }
+            try {
+                Muid.createFromID(UidConverter.calculateMuidWithoutChecking(
+                        (short) 103, (byte) 0, 1, (short) 0));
+                Assert.fail("Created a Muid of an unknown type");
+            } catch (MetalconRuntimeException e) {
+            }
+        } finally {
+            UidTypeRegistry.reset();
+        }
+        Assert.assertFalse(UidTypeRegistry.isRegistered((short) 100));
+    }
 }
@@ -0,0 +1,179 @@
+package de.metalcon.domain.collection;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.metalcon.domain.Muid;
+import de.metalcon.domain.UidType;
+import de.metalcon.domain.helper.UidConverter;
+
+public class MuidArrayTest {
+
+    private static long randomMuid(final Random rng) {
+        return UidConverter.calculateMuidWithoutChecking(
+                (short) rng.nextInt(UidType.values().length), (byte) rng
+                        .nextInt(UidConverter.getLargestAllowedSourceID() + 1),
+                1400000000 + rng.nextInt(1000000), (short) rng.nextInt());
+    }
+
+    @Test
+    public void sortTest() {
+        Random rng = new Random(7);
+        for (MuidArray array : new MuidArray[] {
+            MuidArray.allocate(16), MuidArray.allocateDirect(16)
+        }) {
+            final int n = 300000;
+            long[] expected = new long[n];
+            for (int i = 0; i < n; i++) {
+                expected[i] = randomMuid(rng);
+                array.add(expected[i]);
+            }
+            array.sort();
+            Arrays.sort(expected);
+            Assert.assertArrayEquals(expected, array.toArray());
+
+            for (int i = 0; i < 1000; i++) {
+                int index = rng.nextInt(n);
+                Assert.assertEquals(expected[index],
+                        array.get(array.binarySearch(expected[index])));
+            }
+            Assert.assertTrue(array.binarySearch(expected[0] - 1) < 0);
+        }
+    }
+
+    @Test
+    public void sortBufferTest() {
+        Random rng = new Random(23);
+        MuidArray array = MuidArray.allocateDirect(1000);
+        array.sort();
+        Assert.assertFalse(array.hasSortBuffer());
+
+        for (int round = 0; round < 3; round++) {
+            long[] expected = new long[1000];
+            array.clear();
+            for (int i = 0; i < expected.length; i++) {
+                expected[i] = randomMuid(rng);
+                array.add(expected[i]);
+            }
+            array.sort();
+            Arrays.sort(expected);
+            Assert.assertArrayEquals(expected, array.toArray());
+            Assert.assertTrue(array.hasSortBuffer());
+            Assert.assertEquals(1000, array.capacity());
+        }
+
+        array.releaseSortBuffer();
+        Assert.assertFalse(array.hasSortBuffer());
+        array.sortByTimestamp();
+        Assert.assertTrue(array.hasSortBuffer());
+
+        // growing drops the buffer of the old capacity
+        array.add(randomMuid(rng));
+        Assert.assertFalse(array.hasSortBuffer());
+        array.sort();
+        Assert.assertTrue(array.hasSortBuffer());
+        long[] sorted = array.toArray();
+        long[] expected = sorted.clone();
+        Arrays.sort(expected);
+        Assert.assertArrayEquals(expected, sorted);
+    }
+
+    @Test
+    public void sortByTimestampTest() {
+        Random rng = new Random(11);
+        final int n = 200000;
+        MuidArray array = MuidArray.allocateDirect(n);
+        List<Muid> expected = new ArrayList<Muid>(n);
+        for (int i = 0; i < n; i++) {
+            long muid = randomMuid(rng);
+            array.add(muid);
+            expected.add(Muid.createFromID(muid));
+        }
+        array.sortByTimestamp();
+        Collections.sort(expected, Muid.TIMESTAMP_ORDER);
+        for (int i = 0; i < n; i++) {
+            Assert.assertEquals(expected.get(i).getValue(), array.get(i));
+        }
+
+        int timestamp = expected.get(n / 2).getTimestamp();
+        int first = array.lowerBoundOfTimestamp(timestamp);
+        Assert.assertEquals(timestamp,
+                UidConverter.getTimestamp(array.get(first)));
+        Assert.assertTrue(first == 0
+                || UidConverter.getTimestamp(array.get(first - 1)) < timestamp);
+    }
+
+    @Test
+    public void comparableTest() {
+        Random rng = new Random(13);
+        List<Muid> muids = new ArrayList<Muid>();
+        MuidArray array = MuidArray.allocate(0);
+        for (int i = 0; i < 10000; i++) {
+            long muid = randomMuid(rng);
+            muids.add(Muid.createFromID(muid));
+            array.add(muid);
+        }
+        Collections.sort(muids);
+        array.sort();
+        for (int i = 0; i < muids.size(); i++) {
+            Assert.assertEquals(muids.get(i).getValue(), array.get(i));
+        }
+    }
+
+    @Test
+    public void filterTest() {
+        Random rng = new Random(17);
+        MuidArray array = MuidArray.allocate(0);
+        int bands = 0;
+        for (int i = 0; i < 10000; i++) {
+            long muid = randomMuid(rng);
+            array.add(muid);
+            if (UidConverter.getType(muid) == UidType.BAND.getRawIdentifier()) {
+                bands++;
+            }
+        }
+        MuidArray filtered = array.filterByType(UidType.BAND);
+        Assert.assertEquals(bands, filtered.size());
+        for (int i = 0; i < filtered.size(); i++) {
+            Assert.assertEquals(UidType.BAND.getRawIdentifier(),
+                    UidConverter.getType(filtered.get(i)));
+        }
+
+        filtered = array.filterBySource((byte) 3);
+        for (int i = 0; i < filtered.size(); i++) {
+            Assert.assertEquals(3, UidConverter.getSource(filtered.get(i)));
+        }
+    }
+
+    @Test
+    public void parallelSortTest() {
+        Random rng = new Random(19);
+        // large enough to be sorted in parallel chunks
+        final int n = (int) 1E6;
+        MuidArray array = MuidArray.allocateDirect(n);
+        long[] copy = new long[n];
+        for (int i = 0; i < n; i++) {
+            copy[i] = randomMuid(rng);
+            array.add(copy[i]);
+        }
+
+        array.sortByTimestamp();
+        long previous = 0;
+        for (int i = 0; i < n; i++) {
+            long timestamp =
+                    UidConverter.getTimestamp(array.get(i)) & 0xFFFFFFFFL;
+            Assert.assertTrue(previous <= timestamp);
+            previous = timestamp;
+        }
+
+        array.sort();
+        Arrays.sort(copy);
+        Assert.assertTrue(Arrays.equals(copy, array.toArray()));
+    }
+}
@@ -0,0 +1,115 @@
+package de.metalcon.domain.collection;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.metalcon.domain.Muid;
+import de.metalcon.domain.UidType;
+import de.metalcon.domain.helper.UidConverter;
+
+public class MuidCollectionTest {
+
+    @Test
+    public void setTest() {
+        Random rng = new Random(42);
+        MuidSet set = new MuidSet();
+        Set<Long> reference = new HashSet<Long>();
+        for (int i = 0; i < 200000; i++) {
+            /*
+             * small value range to get many duplicates and removals
+             */
+            long value = rng.nextInt(5000);
+            if (rng.nextInt(3) == 0) {
+                Assert.assertEquals(reference.remove(value), set.remove(value));
+            } else {
+                Assert.assertEquals(reference.add(value), set.add(value));
+            }
+            Assert.assertEquals(reference.size(), set.size());
+        }
+        for (long value = 0; value < 5000; value++) {
+            Assert.assertEquals(reference.contains(value), set.contains(value));
+        }
+
+        final Set<Long> iterated = new HashSet<Long>();
+        PrimitiveIterator.OfLong iterator = set.iterator();
+        while (iterator.hasNext()) {
+            Assert.assertTrue(iterated.add(iterator.nextLong()));
+        }
+        Assert.assertEquals(reference, iterated);
+        Assert.assertEquals(reference.size(), set.toArray().length);
+
+        set.clear();
+        Assert.assertTrue(set.isEmpty());
+        Assert.assertFalse(set.contains(0));
+    }
+
+    @Test
+    public void mapTest() {
+        Random rng = new Random(23);
+        MuidMap<String> map = new MuidMap<String>();
+        Map<Long, String> reference = new HashMap<Long, String>();
+        for (int i = 0; i < 200000; i++) {
+            long key = rng.nextInt(5000);
+            if (rng.nextInt(3) == 0) {
+                Assert.assertEquals(reference.remove(key), map.remove(key));
+            } else {
+                String value = String.valueOf(i);
+                Assert.assertEquals(reference.put(key, value),
+                        map.put(key, value));
+            }
+            Assert.assertEquals(reference.size(), map.size());
+        }
+        for (long key = 0; key < 5000; key++) {
+            Assert.assertEquals(reference.get(key), map.get(key));
+            Assert.assertEquals(reference.containsKey(key),
+                    map.containsKey(key));
+        }
+
+        final Map<Long, String> iterated = new HashMap<Long, String>();
+        map.forEach(new MuidMap.EntryConsumer<String>() {
+
+            @Override
+            public void accept(final long key, final String value) {
+                iterated.put(key, value);
+            }
+        });
+        Assert.assertEquals(reference, iterated);
+
+        Muid muid = Muid.EMPTY_BAND_MUID;
+        map.put(muid, "empty band");
+        Assert.assertEquals("empty band", map.get(muid.getValue()));
+    }
+
+    @Test
+    public void clusteredMuidsTest() {
+        final int n = (int) 1E6;
+
+        /*
+         * clustered Muids as created by a busy node: few timestamps, dense
+         * fine times
+         */
+        long[] muids = new long[n];
+        for (int i = 0; i < n; i++) {
+            muids[i] =
+                    UidConverter.calculateMuidWithoutChecking(
+                            UidType.USER.getRawIdentifier(), (byte) 0,
+                            1400000000 + i / 0x10000, (short) i);
+        }
+        Object present = new Object();
+        MuidMap<Object> map = new MuidMap<Object>();
+        for (long muid : muids) {
+            map.put(muid, present);
+        }
+        for (long muid : muids) {
+            Assert.assertSame(present, map.get(muid));
+        }
+        Assert.assertEquals(n, map.size());
+    }
+}
@@ -0,0 +1,262 @@
+package de.metalcon.domain.metrics;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.net.MalformedURLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.metalcon.domain.MuidGenerator;
+import de.metalcon.domain.OverloadPolicy;
+import de.metalcon.domain.UidType;
+import de.metalcon.domain.helper.TimeSource;
+import de.metalcon.domain.storage.UrlStore;
+import de.metalcon.exceptions.ServiceOverloadedException;
+
+public class MuidMetricsTest {
+
+    private static class ManualTimeSource implements TimeSource {
+
+        private volatile long second;
+
+        public ManualTimeSource(
+                final long second) {
+            this.second = second;
+        }
+
+        public void set(final long second) {
+            this.second = second;
+        }
+
+        @Override
+        public long currentSecond() {
+            return second;
+        }
+    }
+
+    /**
+     * keeps all idsCreated and overloaded events of one type
+     */
+    private static class TypeListener implements MetricsListener {
+
+        private final short type;
+
+        final List<long[]> created = new ArrayList<long[]>();
+
+        final List<OverloadPolicy> overloads = new ArrayList<OverloadPolicy>();
+
+        public TypeListener(
+                final UidType type) {
+            this.type = type.getRawIdentifier();
+        }
+
+        @Override
+        public synchronized void idsCreated(
+                final short type,
+                final long second,
+                final int count) {
+            if (type == this.type) {
+                created.add(new long[] {
+                    second, count
+                });
+            }
+        }
+
+        @Override
+        public synchronized void overloaded(
+                final short type,
+                final OverloadPolicy policy) {
+            if (type == this.type) {
+                overloads.add(policy);
+            }
+        }
+
+        @Override
+        public void urlLookup(
+                final long nanos,
+                final int probeLength,
+                final boolean created) {
+        }
+
+        @Override
+        public void urlCacheLookup(final boolean hit) {
+        }
+
+        @Override
+        public void levelDbRead() {
+        }
+
+        @Override
+        public void levelDbWrite() {
+        }
+    }
+
+    @Test
+    public void generatorTest() throws ServiceOverloadedException {
+        final ManualTimeSource clock = new ManualTimeSource(1000);
+        final MuidGenerator generator =
+                new MuidGenerator((byte) 3, clock);
+        final TypeListener listener = new TypeListener(UidType.TOUR);
+        MuidMetrics.addListener(listener);
+        try {
+            for (int i = 0; i < 100; i++) {
+                generator.nextId(UidType.TOUR);
+            }
+            Assert.assertEquals(100,
+                    generator.getCurrentCount(UidType.TOUR.getRawIdentifier()));
+            Assert.assertTrue(listener.created.isEmpty());
+
+            clock.set(1001);
+            Assert.assertEquals(0,
+                    generator.getCurrentCount(UidType.TOUR.getRawIdentifier()));
+            generator.nextId(UidType.TOUR);
+            Assert.assertEquals(1, listener.created.size());
+            Assert.assertArrayEquals(new long[] {
+                1000, 100
+            }, listener.created.get(0));
+            Assert.assertTrue(MuidMetrics.getRecorder().getPeakIdsPerSecond()
+                    .get("tour") >= 100);
+
+            // exhaust the second
+            generator.reserve(UidType.TOUR, 0xFFFF);
+            try {
+                generator.nextId(UidType.TOUR);
+                Assert.fail("Second not exhausted");
+            } catch (ServiceOverloadedException e) {
+            }
+            Assert.assertEquals(1, listener.overloads.size());
+            Assert.assertEquals(OverloadPolicy.FAIL, listener.overloads.get(0));
+            Assert.assertTrue(MuidMetrics.getRecorder().getOverloads()
+                    .get("FAIL") >= 1);
+
+            generator.setOverloadPolicy(OverloadPolicy.BORROW);
+            generator.nextId(UidType.TOUR);
+            Assert.assertEquals(OverloadPolicy.BORROW, listener.overloads.get(1));
+            Assert.assertArrayEquals(new long[] {
+                1001, 0xFFFF + 1
+            }, listener.created.get(1));
+        } finally {
+            Assert.assertTrue(MuidMetrics.removeListener(listener));
+        }
+        Assert.assertFalse(MuidMetrics.removeListener(listener));
+        Assert.assertFalse(MuidMetrics.removeListener(MuidMetrics
+                .getRecorder()));
+    }
+
+    @Test
+    public void histogramTest() {
+        final Histogram histogram = new Histogram();
+        Assert.assertEquals(0, histogram.getQuantile(0.5));
+        for (int i = 0; i < 1000; i++) {
+            histogram.record(i);
+        }
+        Assert.assertEquals(1000, histogram.getCount());
+        Assert.assertEquals(999, histogram.getMaximum());
+        Assert.assertEquals(499.5, histogram.getMean(), 0.001);
+        Assert.assertEquals(1, histogram.getCounts()[0]);
+        Assert.assertEquals(512 - 256, histogram.getCounts()[9]);
+        // 500th value lies in [256, 512)
+        Assert.assertEquals(511, histogram.getQuantile(0.5));
+        Assert.assertEquals(999, histogram.getQuantile(1));
+
+        histogram.reset();
+        Assert.assertEquals(0, histogram.getCount());
+    }
+
+    @Test
+    public void urlStoreTest() throws Exception {
+        final File directory = File.createTempFile("MuidMetricsTest", null);
+        directory.delete();
+        System.setProperty(UrlStore.DB_PATH_PROPERTY,
+                directory.getAbsolutePath());
+
+        // adds the domain to the dictionary before counting
+        lookup("http://metrics.metalcon.de/");
+
+        final MetricsRecorder recorder = MuidMetrics.getRecorder();
+        final long lookups = recorder.getUrlLookups();
+        final long created = recorder.getUrlsCreated();
+        final long writes = recorder.getLevelDbWrites();
+        final long hits = recorder.getUrlCacheHits();
+        lookup("http://metrics.metalcon.de/a");
+        // answered by the UrlIdCache
+        lookup("http://metrics.metalcon.de/a");
+        Assert.assertEquals(lookups + 1, recorder.getUrlLookups());
+        Assert.assertEquals(hits + 1, recorder.getUrlCacheHits());
+        Assert.assertEquals(created + 1, recorder.getUrlsCreated());
+        // the url and its fingerprint index entry
+        Assert.assertEquals(writes + 2, recorder.getLevelDbWrites());
+        Assert.assertTrue(recorder.getLevelDbReads() >= 1);
+        Assert.assertTrue(recorder.getUrlLookupMaximumNanos() > 0);
+
+        MuidMetrics.registerMBean();
+        MuidMetrics.registerMBean();
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        final ObjectName name = new ObjectName(MuidMetrics.OBJECT_NAME);
+        Assert.assertEquals(recorder.getUrlLookups(),
+                server.getAttribute(name, "UrlLookups"));
+        Assert.assertNotNull(server.getAttribute(name, "PeakIdsPerSecond"));
+    }
+
+    @Test
+    public void probeLengthTest() throws Exception {
+        final File directory = File.createTempFile("MuidMetricsTest", null);
+        directory.delete();
+        System.setProperty(UrlStore.DB_PATH_PROPERTY,
+                directory.getAbsolutePath());
+
+        // "Aa" and "BB" have the same hash code: all urls share a probe chain
+        final List<String> urls = new ArrayList<String>();
+        for (int i = 0; i < 1 << 5; i++) {
+            final StringBuilder url =
+                    new StringBuilder("http://probe.metalcon.de/");
+            for (int bit = 0; bit < 5; bit++) {
+                url.append((i & (1 << bit)) == 0 ? "Aa" : "BB");
+            }
+            urls.add(url.toString());
+        }
+
+        final List<Integer> probeLengths =
+                Collections.synchronizedList(new ArrayList<Integer>());
+        final MetricsListener listener = new TypeListener(UidType.URL) {
+
+            @Override
+            public void urlLookup(
+                    final long nanos,
+                    final int probeLength,
+                    final boolean created) {
+                probeLengths.add(probeLength);
+            }
+        };
+        MuidMetrics.addListener(listener);
+        try {
+            for (final String url : urls) {
+                lookup(url);
+            }
+            Assert.assertEquals(urls.size() - 1,
+                    (int) probeLengths.get(urls.size() - 1));
+
+            // stored urls are found by their fingerprint
+            UrlStore.getCache().clear();
+            probeLengths.clear();
+            for (final String url : urls) {
+                lookup(url);
+            }
+            Assert.assertEquals(Collections.nCopies(urls.size(), 0),
+                    probeLengths);
+        } finally {
+            MuidMetrics.removeListener(listener);
+        }
+    }
+
+    private static void lookup(final String url) throws MalformedURLException {
+        UrlStore.getOrCreateID(url);
+    }
+}
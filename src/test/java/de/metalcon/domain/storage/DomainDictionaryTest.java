@@ -0,0 +1,155 @@
+package de.metalcon.domain.storage;
+
+import java.io.File;
+import java.net.MalformedURLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.metalcon.dbhelper.LevelDbHandler;
+import de.metalcon.domain.UrlId;
+import de.metalcon.domain.helper.UidConverter;
+import de.metalcon.domain.metrics.MetricsRecorder;
+import de.metalcon.domain.metrics.MuidMetrics;
+
+public class DomainDictionaryTest {
+
+    @Test
+    public void denseIDTest() throws Exception {
+        final File directory = File.createTempFile("DomainDictionaryTest", null);
+        directory.delete();
+        LevelDbHandler.initialize(directory.getAbsolutePath());
+        final String name = "DomainDictionaryTest" + System.nanoTime();
+
+        DomainDictionary dictionary =
+                new DomainDictionary(new LevelDbHandler(name));
+        Assert.assertEquals(0, dictionary.size());
+        Assert.assertEquals(-1, dictionary.getID("metalcon.de"));
+        Assert.assertNull(dictionary.getDomain((short) 0));
+
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertEquals(i, dictionary.getOrCreateID("domain" + i
+                    + ".de"));
+        }
+        Assert.assertEquals(7, dictionary.getOrCreateID("domain7.de"));
+        Assert.assertEquals(1000, dictionary.size());
+
+        // reload from LevelDB
+        dictionary = new DomainDictionary(new LevelDbHandler(name));
+        Assert.assertEquals(1000, dictionary.size());
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertEquals(i, dictionary.getID("domain" + i + ".de"));
+            Assert.assertEquals("domain" + i + ".de",
+                    dictionary.getDomain((short) i));
+        }
+        Assert.assertEquals(1000, dictionary.getOrCreateID("metalcon.de"));
+    }
+
+    @Test
+    public void urlStoreTest() throws Exception {
+        final File directory = File.createTempFile("DomainDictionaryTest", null);
+        directory.delete();
+        System.setProperty(UrlStore.DB_PATH_PROPERTY,
+                directory.getAbsolutePath());
+
+        final UrlId a = UrlId.create("http://www.dictionary.de/a");
+        final UrlId b = UrlId.create("http://dictionary.de/b");
+        final UrlId c = UrlId.create("http://other-dictionary.de/a");
+        Assert.assertEquals(a.getDomainId(), b.getDomainId());
+        Assert.assertFalse(a.getDomainId() == c.getDomainId());
+        if (UrlStore
+                .getDomain((short) (DomainDictionary.CAPACITY - 1)) != null) {
+            /*
+             * UrlStore is shared by all tests of this JVM and other tests
+             * (e.g. EuidTest) may have filled the dictionary, so the domainIDs
+             * are legacy hashes
+             */
+            return;
+        }
+        Assert.assertEquals("dictionary.de", a.getDomain());
+        Assert.assertEquals("other-dictionary.de", c.getDomain());
+        Assert.assertEquals("http://dictionary.de/b", b.getUrl());
+
+        Assert.assertEquals(0,
+                UrlStore.getStoredUrlID("http://unknown-dictionary.de/a"));
+
+        // a new store does not probe legacy domainIDs of unknown domains
+        final MetricsRecorder recorder = MuidMetrics.getRecorder();
+        final long reads = recorder.getLevelDbReads();
+        Assert.assertEquals(0,
+                UrlStore.getStoredUrlID("http://unknown-dictionary.de/b"));
+        // the fingerprint index only
+        Assert.assertEquals(reads + 1, recorder.getLevelDbReads());
+    }
+
+    @Test
+    public void malformedBatchTest() throws Exception {
+        final File directory = File.createTempFile("DomainDictionaryTest", null);
+        directory.delete();
+        System.setProperty(UrlStore.DB_PATH_PROPERTY,
+                directory.getAbsolutePath());
+
+        // first unused domainID
+        UrlStore.getStoredUrlID("http://malformed-batch.de/");
+        int size = 0;
+        while (size < DomainDictionary.CAPACITY
+                && UrlStore.getDomain((short) size) != null) {
+            size++;
+        }
+        if (size == DomainDictionary.CAPACITY) {
+            // filled by other tests sharing UrlStore
+            return;
+        }
+
+        // new domains, some of them are looked up before the malformed url
+        final List<String> urls = new ArrayList<String>();
+        for (int i = 0; i < 20; i++) {
+            urls.add("http://malformed-batch" + i + ".de/");
+        }
+        urls.add("malformed batch");
+        try {
+            UrlStore.getOrCreateIDs(urls);
+            Assert.fail("malformed url has been accepted");
+        } catch (MalformedURLException e) {
+            // expected
+        }
+        for (int i = 0; i < 20; i++) {
+            Assert.assertEquals(0, UrlStore.getStoredUrlID(urls.get(i)));
+        }
+        // no domain of the valid urls has been created
+        Assert.assertNull(UrlStore.getDomain((short) size));
+    }
+
+    @Test
+    public void legacyDomainIdsTest() throws Exception {
+        final File directory = File.createTempFile("DomainDictionaryTest", null);
+        directory.delete();
+        System.setProperty(UrlStore.DB_PATH_PROPERTY,
+                directory.getAbsolutePath());
+
+        final UrlId url = UrlId.create("http://www.legacy-dictionary.de/a");
+        if (UrlStore
+                .getDomain((short) (DomainDictionary.CAPACITY - 1)) != null) {
+            // filled by other tests sharing UrlStore
+            return;
+        }
+        final String domain = "legacy-dictionary.de";
+        Assert.assertEquals(domain, UrlStore.getDomain(url.getDomainId()));
+        final long unknown = UidConverter.calculateUrlIdWithoutChecking(
+                url.getDomainId(), 0x7FFFFFFF);
+        Assert.assertNull(UrlStore.getUrl(unknown));
+        try {
+            UrlStore.setLegacyDomainIds(true);
+            // a legacy domainID may equal the ID of another domain
+            Assert.assertNull(UrlStore.getDomain(url.getDomainId()));
+            Assert.assertNull(UrlStore.getDomainOfUrlID(unknown));
+            Assert.assertEquals(domain, url.getDomain());
+        } finally {
+            UrlStore.setLegacyDomainIds(false);
+        }
+        Assert.assertEquals(domain, url.getDomain());
+        Assert.assertEquals(domain, UrlStore.getDomainOfUrlID(unknown));
+    }
+}
@@ -0,0 +1,164 @@
+package de.metalcon.domain.storage;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.metalcon.dbhelper.LevelDbHandler;
+import de.metalcon.domain.metrics.MetricsRecorder;
+import de.metalcon.domain.metrics.MuidMetrics;
+
+public class GroupCommitterTest {
+
+    @Test
+    public void flushTest() throws Exception {
+        final String name = "GroupCommitterTest" + System.nanoTime();
+        final LevelDbHandler db = new LevelDbHandler(name);
+        final LevelDbHandler index = new LevelDbHandler(name + "Index");
+        // neither size nor time threshold is reached during the test
+        final GroupCommitter committer = new GroupCommitter(1 << 20, 60000);
+        final GroupCommitter.Table urls = committer.createTable(db);
+        final GroupCommitter.Table fingerprints = committer.createTable(index);
+
+        Assert.assertTrue(committer.flush().isDone());
+        final MetricsRecorder recorder = MuidMetrics.getRecorder();
+        final long reads = recorder.getLevelDbReads();
+        for (int i = 0; i < 1000; i++) {
+            urls.put(i, "url" + i);
+            fingerprints.put(-i, "fingerprint" + i);
+            // visible before it is written
+            Assert.assertEquals("url" + i, urls.getString(i));
+            Assert.assertEquals("fingerprint" + i, fingerprints.getString(-i));
+        }
+        // served by the overlay
+        Assert.assertEquals(reads, recorder.getLevelDbReads());
+        Assert.assertNull(urls.getString(-1));
+        Assert.assertEquals(reads + 1, recorder.getLevelDbReads());
+        Assert.assertNull(db.getString(999));
+        Assert.assertEquals(1000, urls.getPendingCount());
+
+        committer.flush().get(10, TimeUnit.SECONDS);
+        Assert.assertEquals(0, urls.getPendingCount());
+        Assert.assertEquals(0, fingerprints.getPendingCount());
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertEquals("url" + i, db.getString(i));
+            Assert.assertEquals("fingerprint" + i, index.getString(-i));
+            Assert.assertEquals("url" + i, urls.getString(i));
+        }
+        Assert.assertTrue(committer.flush().isDone());
+
+        // queued puts are written on close
+        urls.put(1000, "url1000");
+        committer.close();
+        Assert.assertEquals("url1000", db.getString(1000));
+    }
+
+    @Test
+    public void thresholdTest() throws Exception {
+        final LevelDbHandler db =
+                new LevelDbHandler("GroupCommitterTest" + System.nanoTime());
+
+        // written after 10 ms without flush
+        GroupCommitter committer = new GroupCommitter(1 << 20, 10);
+        GroupCommitter.Table table = committer.createTable(db);
+        table.put(1, "delayed");
+        long deadline = System.currentTimeMillis() + 10000;
+        while (db.getString(1) == null
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        Assert.assertEquals("delayed", db.getString(1));
+        committer.close();
+
+        // written when 100 puts are queued
+        committer = new GroupCommitter(100, 60000);
+        table = committer.createTable(db);
+        for (int i = 2; i < 102; i++) {
+            table.put(i, "full");
+        }
+        deadline = System.currentTimeMillis() + 10000;
+        while (table.getPendingCount() > 0
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        Assert.assertEquals(0, table.getPendingCount());
+        Assert.assertEquals("full", db.getString(101));
+        committer.close();
+    }
+
+    /**
+     * LevelDB table failing the first failures puts
+     */
+    private static class FailingHandler extends LevelDbHandler {
+
+        private final AtomicInteger failures;
+
+        FailingHandler(
+                final String name,
+                final int failures) {
+            super(name);
+            this.failures = new AtomicInteger(failures);
+        }
+
+        @Override
+        public void put(final long key, final String value) {
+            if (failures.getAndDecrement() > 0) {
+                throw new IllegalStateException("write failed");
+            }
+            super.put(key, value);
+        }
+    }
+
+    @Test
+    public void retryTest() throws Exception {
+        final FailingHandler db =
+                new FailingHandler("GroupCommitterTest" + System.nanoTime(),
+                        3);
+        // retries back off although puts are never delayed
+        final GroupCommitter committer = new GroupCommitter(1 << 20, 0);
+        final GroupCommitter.Table table = committer.createTable(db);
+        table.put(1, "retried");
+        committer.flush().get(10, TimeUnit.SECONDS);
+        Assert.assertEquals("retried", db.getString(1));
+        Assert.assertEquals(-1, db.failures.get());
+        committer.close();
+    }
+
+    @Test
+    public void giveUpTest() throws Exception {
+        final FailingHandler db =
+                new FailingHandler("GroupCommitterTest" + System.nanoTime(),
+                        Integer.MAX_VALUE);
+        final GroupCommitter committer = new GroupCommitter(1 << 20, 0);
+        final GroupCommitter.Table table = committer.createTable(db);
+        table.put(1, "lost");
+        try {
+            committer.flush().get(10, TimeUnit.SECONDS);
+            Assert.fail("failed write has been flushed");
+        } catch (ExecutionException e) {
+            Assert.assertEquals("write failed", e.getCause().getMessage());
+        }
+        // first write and its retries
+        Assert.assertEquals(Integer.MAX_VALUE - GroupCommitter.MAX_RETRIES
+                - 1, db.failures.get());
+
+        // still visible, but not accepted any more
+        Assert.assertEquals("lost", table.getString(1));
+        Assert.assertTrue(committer.flush().isCompletedExceptionally());
+        try {
+            table.put(2, "rejected");
+            Assert.fail("put has been accepted");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        try {
+            committer.close();
+            Assert.fail("failure has not been thrown");
+        } catch (IllegalStateException e) {
+            Assert.assertEquals("write failed", e.getCause().getMessage());
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package de.metalcon.domain.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.metalcon.domain.Muid;
+import de.metalcon.domain.UidType;
+import de.metalcon.domain.helper.UidConverter;
+import de.metalcon.exceptions.ServiceOverloadedException;
+
+public class MuidFileStoreTest {
+
+    private Path root;
+
+    @Before
+    public void setUp() throws IOException {
+        root = Files.createTempDirectory("MuidFileStoreTest");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+
+            @Override
+            public FileVisitResult visitFile(
+                    final Path file,
+                    final BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(
+                    final Path dir,
+                    final IOException e) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    @Test
+    public void storeAndLoadTest() throws IOException,
+            ServiceOverloadedException {
+        MuidFileStore store = new MuidFileStore(root);
+        Muid muid = Muid.create(UidType.IMAGE);
+        Assert.assertNull(store.load(muid));
+        Assert.assertFalse(store.contains(muid.getValue()));
+
+        byte[] data = "metal".getBytes("UTF-8");
+        store.store(muid, data);
+        Assert.assertEquals(
+                root.resolve(muid.getStoragePath()).resolve(muid.toString()),
+                store.getPath(muid.getValue()));
+        Assert.assertEquals(ByteBuffer.wrap(data), store.load(muid));
+
+        /*
+         * overwrite atomically: no temporary files are left behind
+         */
+        data = "more metal".getBytes("UTF-8");
+        store.store(muid, data);
+        Assert.assertEquals(ByteBuffer.wrap(data), store.load(muid));
+        Assert.assertEquals(1,
+                store.getPath(muid.getValue()).getParent().toFile().list().length);
+
+        Assert.assertTrue(store.delete(muid.getValue()));
+        Assert.assertNull(store.load(muid));
+    }
+
+    @Test
+    public void largePayloadTest() throws IOException {
+        MuidFileStore store =
+                new MuidFileStore(root, new ShardingScheme(2, 256), true);
+        long muid =
+                UidConverter.calculateMuidWithoutChecking(
+                        UidType.IMAGE.getRawIdentifier(), (byte) 0,
+                        1400000000, (short) 1);
+        byte[] data = new byte[MuidFileStore.MAP_THRESHOLD + 1];
+        new Random().nextBytes(data);
+
+        store.store(muid, ByteBuffer.wrap(data));
+        ByteBuffer loaded = store.load(muid);
+        Assert.assertTrue(loaded instanceof MappedByteBuffer);
+        Assert.assertEquals(ByteBuffer.wrap(data), loaded);
+    }
+}
@@ -0,0 +1,85 @@
+package de.metalcon.domain.storage;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.metalcon.domain.UidType;
+import de.metalcon.domain.helper.UidConverter;
+
+public class ShardingSchemeTest {
+
+    @Test
+    public void legacyTest() {
+        Random rng = new Random();
+        StringBuilder path = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            long muid = rng.nextLong() & Long.MAX_VALUE;
+            String expected = UidConverter.getMuidStoragePath(muid);
+            Assert.assertEquals(expected,
+                    ShardingScheme.LEGACY.getPath(muid));
+
+            path.setLength(0);
+            Assert.assertEquals(expected,
+                    ShardingScheme.LEGACY.appendPath(muid, path).toString());
+        }
+        Assert.assertEquals(4096, ShardingScheme.LEGACY.getLeafCount());
+    }
+
+    @Test
+    public void resolveTest() {
+        ShardingScheme scheme = new ShardingScheme(3, 256);
+        Path root = Paths.get("/tmp/muids");
+        Random rng = new Random();
+        for (int i = 0; i < 1000; i++) {
+            long muid = rng.nextLong();
+            String path = scheme.getPath(muid);
+            Assert.assertEquals(3 * 3, path.length());
+            Assert.assertEquals(root.resolve(path), scheme.resolve(root, muid));
+        }
+
+        try {
+            new ShardingScheme(5, 16, ShardingScheme.PERSISTENT_HASH, 16);
+            Assert.fail("Persistent hash has only 16 bits for 5 levels");
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+    /**
+     * Checks that a stream of Muids as created during a few seconds reaches
+     * every leaf directory of the smaller layouts. The balance of the leaves
+     * is reported by ShardingBenchmark.
+     */
+    @Test
+    public void distributionTest() {
+        // all Muids of 16 seconds, as MuidGenerator.reserve creates them
+        long[] muids = new long[1 << 20];
+        int perSecond = UidConverter.getMaximumMuidID() + 1;
+        for (int i = 0; i < muids.length; i++) {
+            muids[i] = UidConverter.calculateMuidWithoutChecking(
+                    UidType.IMAGE.getRawIdentifier(), (byte) 0,
+                    1400000000 + i / perSecond, (short) (i % perSecond));
+        }
+
+        for (ShardingScheme scheme : new ShardingScheme[] {
+            ShardingScheme.LEGACY, new ShardingScheme(3, 16),
+            new ShardingScheme(2, 256), new ShardingScheme(3, 256)
+        }) {
+            int[] leaves = new int[(int) scheme.getLeafCount()];
+            for (long muid : muids) {
+                leaves[(int) scheme.getLeafIndex(muid)]++;
+            }
+
+            int used = 0;
+            for (int count : leaves) {
+                used += count > 0 ? 1 : 0;
+            }
+            if (leaves.length * 8 <= muids.length) {
+                Assert.assertEquals(leaves.length, used);
+            }
+        }
+    }
+}
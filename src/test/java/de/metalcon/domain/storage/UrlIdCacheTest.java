@@ -0,0 +1,49 @@
+package de.metalcon.domain.storage;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.metalcon.domain.metrics.MetricsRecorder;
+import de.metalcon.domain.metrics.MuidMetrics;
+
+public class UrlIdCacheTest {
+
+    private static String url(final int i) {
+        return "http://cache.metalcon.de/" + i;
+    }
+
+    @Test
+    public void evictionTest() {
+        final UrlIdCache cache = new UrlIdCache(1000);
+        Assert.assertEquals(1008, cache.getCapacity());
+
+        for (int i = 1; i <= 10000; i++) {
+            cache.put(url(i), i);
+            // keep the first URL in use
+            Assert.assertEquals(1, cache.get(url(1)));
+        }
+        Assert.assertTrue(cache.size() <= cache.getCapacity());
+        Assert.assertEquals(10000, cache.get(url(10000)));
+        Assert.assertEquals(0, cache.get(url(2)));
+
+        cache.clear();
+        Assert.assertEquals(0, cache.size());
+        Assert.assertEquals(0, cache.get(url(1)));
+    }
+
+    @Test
+    public void hitRatioTest() {
+        final MetricsRecorder recorder = MuidMetrics.getRecorder();
+        final long hits = recorder.getUrlCacheHits();
+        final long misses = recorder.getUrlCacheMisses();
+
+        final UrlIdCache cache = new UrlIdCache(16);
+        cache.put(url(1), 1);
+        cache.get(url(1));
+        cache.get(url(1));
+        cache.get(url(2));
+        Assert.assertEquals(hits + 2, recorder.getUrlCacheHits());
+        Assert.assertEquals(misses + 1, recorder.getUrlCacheMisses());
+        Assert.assertTrue(recorder.getUrlCacheHitRatio() > 0);
+    }
+}